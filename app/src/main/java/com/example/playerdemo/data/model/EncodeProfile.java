@@ -0,0 +1,42 @@
+package com.example.playerdemo.data.model;
+
+// 剪辑导出时的视频编码方式。AUTO 按主机探测到的能力选择，硬件编码优先；
+// COPY 不重新编码，剪切点落在关键帧上
+public enum EncodeProfile {
+    AUTO("自动", null, null, null),
+    SOFTWARE_X264("软件 H.264 (x264)", "h264", "libx264", "-preset veryfast -crf 20"),
+    NVENC_H264("NVENC H.264", "h264", "h264_nvenc", "-preset p4 -rc vbr -cq 21 -b:v 0"),
+    NVENC_HEVC("NVENC HEVC", "hevc", "hevc_nvenc", "-preset p4 -rc vbr -cq 23 -b:v 0"),
+    QSV_H264("Intel QSV H.264", "h264", "h264_qsv", "-preset faster -global_quality 23"),
+    COPY("不重新编码（按关键帧剪切）", null, null, null);
+
+    private final String label;
+    private final String codec;
+    private final String encoder;
+    private final String qualityArgs;
+
+    EncodeProfile(String label, String codec, String encoder, String qualityArgs) {
+        this.label = label;
+        this.codec = codec;
+        this.encoder = encoder;
+        this.qualityArgs = qualityArgs;
+    }
+
+    public String getLabel() { return label; }
+    // 输出的视频编码（h264 / hevc），AUTO 和 COPY 为 null
+    public String getCodec() { return codec; }
+    // ffmpeg 编码器名，AUTO 和 COPY 为 null
+    public String getEncoder() { return encoder; }
+
+    public boolean isHardware() {
+        return this == NVENC_H264 || this == NVENC_HEVC || this == QSV_H264;
+    }
+
+    // ffmpeg 的视频编码参数
+    public String videoArgs() {
+        if (encoder == null) {
+            return "-c:v copy";
+        }
+        return "-c:v " + encoder + " " + qualityArgs;
+    }
+}
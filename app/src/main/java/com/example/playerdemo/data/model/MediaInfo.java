@@ -0,0 +1,66 @@
+package com.example.playerdemo.data.model;
+
+import java.util.Locale;
+
+// 视频的媒体信息，由 ffprobe（远程）或 MediaMetadataRetriever（本地）得到。
+// size 和 lastModified 用来判断缓存是否还对应同一个文件
+public class MediaInfo {
+    private String path;
+    private long size;
+    private long lastModified;
+    private long durationMs;
+    private int width;
+    private int height;
+    private String videoCodec;
+    private long bitRate;
+
+    public MediaInfo(String path, long size, long lastModified) {
+        this.path = path;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.durationMs = -1;
+    }
+
+    public String getPath() { return path; }
+    public long getSize() { return size; }
+    public long getLastModified() { return lastModified; }
+    // 未知时为 -1
+    public long getDurationMs() { return durationMs; }
+    public void setDurationMs(long durationMs) { this.durationMs = durationMs; }
+    public int getWidth() { return width; }
+    public void setWidth(int width) { this.width = width; }
+    public int getHeight() { return height; }
+    public void setHeight(int height) { this.height = height; }
+    public String getVideoCodec() { return videoCodec; }
+    public void setVideoCodec(String videoCodec) { this.videoCodec = videoCodec; }
+    // 比特率 bps，未知时为 0
+    public long getBitRate() { return bitRate; }
+    public void setBitRate(long bitRate) { this.bitRate = bitRate; }
+
+    public boolean matches(VideoFile video) {
+        return size == video.getSize() && lastModified == video.getLastModified();
+    }
+
+    // 日志里的一行概要，如 "1:02:05  1920x1080  h264  5.0 Mbps"
+    public String describe() {
+        StringBuilder sb = new StringBuilder(getFormattedDuration());
+        if (width > 0 && height > 0) sb.append("  ").append(width).append('x').append(height);
+        if (videoCodec != null) sb.append("  ").append(videoCodec);
+        if (bitRate > 0) sb.append(String.format(Locale.US, "  %.1f Mbps", bitRate / 1_000_000.0));
+        return sb.toString().trim();
+    }
+
+    public String getFormattedDuration() {
+        return formatDuration(durationMs);
+    }
+
+    // 列表里显示的时长，超过一小时显示 h:mm:ss，未知时为空字符串
+    public static String formatDuration(long durationMs) {
+        if (durationMs < 0) return "";
+        long seconds = durationMs / 1000;
+        if (seconds >= 3600) {
+            return String.format(Locale.US, "%d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+        }
+        return String.format(Locale.US, "%02d:%02d", seconds / 60, seconds % 60);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.playerdemo.data.model;
+
+import java.util.UUID;
+
+// 识别队列中的一个视频，随队列一起序列化到本地
+public class RecognitionJob {
+    public enum Status { PENDING, RUNNING, DONE, FAILED }
+
+    private String id;
+    private String videoPath;
+    private String videoName;
+    private String mdPath;
+    private Status status;
+    private String error;
+    private int attempts;
+    private long enqueuedAt;
+    private long startedAt;
+    private long finishedAt;
+
+    public RecognitionJob(String videoPath, String videoName, String mdPath) {
+        this.id = UUID.randomUUID().toString();
+        this.videoPath = videoPath;
+        this.videoName = videoName;
+        this.mdPath = mdPath;
+        this.status = Status.PENDING;
+        this.enqueuedAt = System.currentTimeMillis();
+    }
+
+    // 复制一份给界面使用，避免界面读到队列线程正在修改的对象
+    public RecognitionJob copy() {
+        RecognitionJob copy = new RecognitionJob(videoPath, videoName, mdPath);
+        copy.id = id;
+        copy.status = status;
+        copy.error = error;
+        copy.attempts = attempts;
+        copy.enqueuedAt = enqueuedAt;
+        copy.startedAt = startedAt;
+        copy.finishedAt = finishedAt;
+        return copy;
+    }
+
+    public String getId() { return id; }
+    public String getVideoPath() { return videoPath; }
+    public String getVideoName() { return videoName; }
+    public String getMdPath() { return mdPath; }
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+    public long getEnqueuedAt() { return enqueuedAt; }
+    public long getStartedAt() { return startedAt; }
+    public void setStartedAt(long startedAt) { this.startedAt = startedAt; }
+    public long getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(long finishedAt) { this.finishedAt = finishedAt; }
+
+    public boolean isActive() {
+        return status == Status.PENDING || status == Status.RUNNING;
+    }
+}
@@ -1,66 +1,83 @@
 package com.example.playerdemo.data.model;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
+// SubtitleTrack 中某一条字幕的轻量视图，所有读写都落到 track 的列存储上
 public class SubtitleEntry {
-    private String id;
-    private String startTime;
-    private String endTime;
-    private String content;
-    private boolean kept;
-    private int index;
+    public static final int TIMESTAMP_LENGTH = 12; // HH:MM:SS.mmm
 
-    private static final Pattern TIME_PATTERN = Pattern.compile(
-        "(\\d{2}:\\d{2}:\\d{2}\\.\\d{3})\\s*-->\\s*(\\d{2}:\\d{2}:\\d{2}\\.\\d{3})"
-    );
+    private final SubtitleTrack track;
+    private final int index;
 
-    public SubtitleEntry(String id, String startTime, String endTime, String content, boolean kept, int index) {
-        this.id = id;
-        this.startTime = startTime;
-        this.endTime = endTime;
-        this.content = content;
-        this.kept = kept;
+    SubtitleEntry(SubtitleTrack track, int index) {
+        this.track = track;
         this.index = index;
     }
 
-    public static SubtitleEntry parseFromMd(String mdContent, int index) {
-        String[] lines = mdContent.split("\n");
-        String id = String.valueOf(index + 1);
-        String startTime = "";
-        String endTime = "";
-        String content = "";
+    public String toMdFormat() {
+        return getStartTime() + " --> " + getEndTime() + "\n" + getContent() + "\n";
+    }
 
-        for (String line : lines) {
-            line = line.trim();
-            if (line.isEmpty()) continue;
+    public String getId() { return String.valueOf(index + 1); }
+    public String getStartTime() { return formatTimestamp(getStartMs()); }
+    public String getEndTime() { return formatTimestamp(getEndMs()); }
+    public long getStartMs() { return track.getStartMs(index); }
+    public long getEndMs() { return track.getEndMs(index); }
+    public String getContent() { return track.getContent(index); }
+    public void setContent(String content) { track.setContent(index, content); }
+    public boolean isKept() { return track.isKept(index); }
+    public void setKept(boolean kept) { track.setKept(index, kept); }
+    public int getIndex() { return index; }
+    public SubtitleTrack getTrack() { return track; }
 
-            Matcher matcher = TIME_PATTERN.matcher(line);
-            if (matcher.find()) {
-                startTime = matcher.group(1);
-                endTime = matcher.group(2);
-            } else if (!line.contains("-->")) {
-                content = line;
-            }
+    // 解析 HH:MM:SS.mmm，格式不对返回 -1
+    public static long parseTimestamp(CharSequence s, int at) {
+        if (at < 0 || at + TIMESTAMP_LENGTH > s.length()
+                || s.charAt(at + 2) != ':' || s.charAt(at + 5) != ':' || s.charAt(at + 8) != '.') {
+            return -1;
         }
+        int hours = twoDigits(s, at);
+        int minutes = twoDigits(s, at + 3);
+        int seconds = twoDigits(s, at + 6);
+        int hundreds = digit(s, at + 9);
+        int tens = digit(s, at + 10);
+        int ones = digit(s, at + 11);
+        if (hours < 0 || minutes < 0 || seconds < 0 || hundreds < 0 || tens < 0 || ones < 0) {
+            return -1;
+        }
+        return ((hours * 60L + minutes) * 60L + seconds) * 1000L + hundreds * 100 + tens * 10 + ones;
+    }
 
-        return new SubtitleEntry(id, startTime, endTime, content, true, index);
+    public static String formatTimestamp(long ms) {
+        StringBuilder out = new StringBuilder(TIMESTAMP_LENGTH);
+        appendTimestamp(out, ms);
+        return out.toString();
     }
 
-    public String toMdFormat() {
-        return startTime + " --> " + endTime + "\n" + content + "\n";
+    public static void appendTimestamp(StringBuilder out, long ms) {
+        long totalSeconds = ms / 1000;
+        appendTwoDigits(out, (int) Math.min(99, totalSeconds / 3600));
+        out.append(':');
+        appendTwoDigits(out, (int) (totalSeconds / 60 % 60));
+        out.append(':');
+        appendTwoDigits(out, (int) (totalSeconds % 60));
+        out.append('.');
+        int millis = (int) (ms % 1000);
+        out.append((char) ('0' + millis / 100))
+                .append((char) ('0' + millis / 10 % 10))
+                .append((char) ('0' + millis % 10));
     }
 
-    public String getId() { return id; }
-    public void setId(String id) { this.id = id; }
-    public String getStartTime() { return startTime; }
-    public void setStartTime(String startTime) { this.startTime = startTime; }
-    public String getEndTime() { return endTime; }
-    public void setEndTime(String endTime) { this.endTime = endTime; }
-    public String getContent() { return content; }
-    public void setContent(String content) { this.content = content; }
-    public boolean isKept() { return kept; }
-    public void setKept(boolean kept) { this.kept = kept; }
-    public int getIndex() { return index; }
-    public void setIndex(int index) { this.index = index; }
+    private static int twoDigits(CharSequence s, int at) {
+        int tens = digit(s, at);
+        int ones = digit(s, at + 1);
+        return tens < 0 || ones < 0 ? -1 : tens * 10 + ones;
+    }
+
+    private static int digit(CharSequence s, int at) {
+        char c = s.charAt(at);
+        return c >= '0' && c <= '9' ? c - '0' : -1;
+    }
+
+    private static void appendTwoDigits(StringBuilder out, int value) {
+        out.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
 }
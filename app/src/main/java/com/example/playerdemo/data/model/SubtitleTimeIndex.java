@@ -0,0 +1,116 @@
+package com.example.playerdemo.data.model;
+
+import java.util.Arrays;
+
+// 字幕时间区间索引：按开始时间排序，二分查找"t 时刻正在说的那一条"。
+// 播放进度通常是连续推进的，先检查上一次命中的条目及其后一条，大多数查询是 O(1)
+public class SubtitleTimeIndex {
+    private final int[] order;       // 按开始时间排序后的字幕下标
+    private final long[] starts;
+    private final long[] ends;
+    private final long[] maxEndSoFar; // 前 i 个区间的最大结束时间，用于处理重叠区间
+    private int lastHit = -1;         // 上一次命中在 order 中的位置
+
+    public SubtitleTimeIndex(SubtitleTrack track) {
+        int size = track.size();
+        order = new int[size];
+        starts = new long[size];
+        ends = new long[size];
+        maxEndSoFar = new long[size];
+
+        boolean sorted = true;
+        for (int i = 0; i < size; i++) {
+            starts[i] = track.getStartMs(i);
+            if (i > 0 && starts[i] < starts[i - 1]) {
+                sorted = false;
+            }
+        }
+
+        // autocut 输出本来就是按时间排好的，只有乱序时才排序
+        if (sorted) {
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+        } else {
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                // 高位放开始时间、低 32 位放下标，一次基本类型排序得到稳定顺序
+                keys[i] = (starts[i] << 32) | i;
+            }
+            Arrays.sort(keys);
+            for (int i = 0; i < size; i++) {
+                order[i] = (int) keys[i];
+                starts[i] = keys[i] >>> 32;
+            }
+        }
+
+        long maxEnd = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            ends[i] = track.getEndMs(order[i]);
+            maxEnd = Math.max(maxEnd, ends[i]);
+            maxEndSoFar[i] = maxEnd;
+        }
+    }
+
+    public int size() {
+        return order.length;
+    }
+
+    // 返回覆盖 positionMs 的字幕下标，没有则返回 -1
+    public int find(long positionMs) {
+        int hit = lastHit;
+        if (hit >= 0 && contains(hit, positionMs)) {
+            return order[hit];
+        }
+        if (hit + 1 < order.length && hit + 1 >= 0 && contains(hit + 1, positionMs)) {
+            lastHit = hit + 1;
+            return order[hit + 1];
+        }
+
+        int pos = lastStartAtOrBefore(positionMs);
+        // 从最后一个已开始的区间往前找，前缀最大结束时间不超过 t 时说明更早的都已结束
+        while (pos >= 0 && maxEndSoFar[pos] > positionMs) {
+            if (ends[pos] > positionMs) {
+                lastHit = pos;
+                return order[pos];
+            }
+            pos--;
+        }
+        return -1;
+    }
+
+    // 下一次字幕切换（当前条目结束或下一条开始）的时间点，用于安排下一次刷新；没有则返回 -1
+    public long nextBoundary(long positionMs) {
+        long boundary = Long.MAX_VALUE;
+        int pos = lastStartAtOrBefore(positionMs);
+        if (pos + 1 < starts.length) {
+            boundary = starts[pos + 1];
+        }
+        for (int i = pos; i >= 0 && maxEndSoFar[i] > positionMs; i--) {
+            if (ends[i] > positionMs) {
+                boundary = Math.min(boundary, ends[i]);
+            }
+        }
+        return boundary == Long.MAX_VALUE ? -1 : boundary;
+    }
+
+    private boolean contains(int pos, long positionMs) {
+        return starts[pos] <= positionMs && positionMs < ends[pos];
+    }
+
+    private int lastStartAtOrBefore(long positionMs) {
+        int low = 0;
+        int high = starts.length - 1;
+        int result = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] <= positionMs) {
+                result = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return result;
+    }
+}
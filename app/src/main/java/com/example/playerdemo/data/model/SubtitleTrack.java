@@ -0,0 +1,181 @@
+package com.example.playerdemo.data.model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+// 按列存放的字幕：起止时间是 long 数组，保留标记是 BitSet，所有文字共用一个缓冲区、
+// 按偏移取用。SubtitleEntry 只是 (track, index) 的视图，不再每条保存一组字符串
+public class SubtitleTrack {
+    private static final int INITIAL_CAPACITY = 64;
+    // 编辑产生的废弃文字超过这个量且超过缓冲区一半时才整理
+    private static final int COMPACT_THRESHOLD = 16 * 1024;
+
+    private int size;
+    private long[] startMs;
+    private long[] endMs;
+    private int[] textStart;
+    private int[] textLength;
+    private final BitSet kept = new BitSet();
+    private StringBuilder text;
+    private int garbageChars;
+
+    public SubtitleTrack() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public SubtitleTrack(int capacity) {
+        capacity = Math.max(1, capacity);
+        startMs = new long[capacity];
+        endMs = new long[capacity];
+        textStart = new int[capacity];
+        textLength = new int[capacity];
+        text = new StringBuilder(capacity * 32);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // 追加 content[from, to) 作为一条新字幕，返回它的下标
+    public int add(long start, long end, CharSequence content, int from, int to, boolean keep) {
+        ensureCapacity(size + 1);
+        int index = size++;
+        startMs[index] = start;
+        endMs[index] = end;
+        textStart[index] = text.length();
+        textLength[index] = to - from;
+        text.append(content, from, to);
+        kept.set(index, keep);
+        return index;
+    }
+
+    public int add(long start, long end, CharSequence content, boolean keep) {
+        return add(start, end, content, 0, content.length(), keep);
+    }
+
+    // 把另一段字幕整体接到末尾，用于流式解析时合并每一批结果
+    public void addAll(SubtitleTrack other) {
+        addAll(other, 0);
+    }
+
+    // 接到末尾时时间整体平移 offsetMs，用于拼接分段转写的结果
+    public void addAll(SubtitleTrack other, long offsetMs) {
+        ensureCapacity(size + other.size);
+        int base = text.length();
+        for (int i = 0; i < other.size; i++) {
+            startMs[size + i] = other.startMs[i] + offsetMs;
+            endMs[size + i] = other.endMs[i] + offsetMs;
+            textStart[size + i] = base + other.textStart[i];
+            textLength[size + i] = other.textLength[i];
+        }
+        text.append(other.text);
+        garbageChars += other.garbageChars;
+        for (int i = other.kept.nextSetBit(0); i >= 0 && i < other.size; i = other.kept.nextSetBit(i + 1)) {
+            kept.set(size + i);
+        }
+        size += other.size;
+    }
+
+    public SubtitleEntry get(int index) {
+        checkIndex(index);
+        return new SubtitleEntry(this, index);
+    }
+
+    public long getStartMs(int index) {
+        checkIndex(index);
+        return startMs[index];
+    }
+
+    public long getEndMs(int index) {
+        checkIndex(index);
+        return endMs[index];
+    }
+
+    public String getContent(int index) {
+        checkIndex(index);
+        int start = textStart[index];
+        return text.substring(start, start + textLength[index]);
+    }
+
+    // 直接把文字写进调用方的缓冲区，生成 md 时不产生中间字符串
+    public void appendContent(int index, StringBuilder out) {
+        checkIndex(index);
+        int start = textStart[index];
+        out.append(text, start, start + textLength[index]);
+    }
+
+    public void setContent(int index, CharSequence content) {
+        checkIndex(index);
+        garbageChars += textLength[index];
+        textStart[index] = text.length();
+        textLength[index] = content.length();
+        text.append(content);
+        if (garbageChars > COMPACT_THRESHOLD && garbageChars > text.length() / 2) {
+            compact();
+        }
+    }
+
+    public boolean isKept(int index) {
+        checkIndex(index);
+        return kept.get(index);
+    }
+
+    public void setKept(int index, boolean keep) {
+        checkIndex(index);
+        kept.set(index, keep);
+    }
+
+    public void setAllKept(boolean keep) {
+        if (keep) {
+            kept.set(0, size);
+        } else {
+            kept.clear();
+        }
+    }
+
+    public void invertKept() {
+        kept.flip(0, size);
+    }
+
+    public int keptCount() {
+        return kept.cardinality();
+    }
+
+    // 从 from 开始的下一条保留字幕，没有则返回 -1
+    public int nextKept(int from) {
+        int next = kept.nextSetBit(from);
+        return next < size ? next : -1;
+    }
+
+    private void compact() {
+        StringBuilder compacted = new StringBuilder(text.length() - garbageChars);
+        for (int i = 0; i < size; i++) {
+            int start = textStart[i];
+            textStart[i] = compacted.length();
+            compacted.append(text, start, start + textLength[i]);
+        }
+        text = compacted;
+        garbageChars = 0;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= startMs.length) {
+            return;
+        }
+        int capacity = Math.max(required, startMs.length + (startMs.length >> 1));
+        startMs = Arrays.copyOf(startMs, capacity);
+        endMs = Arrays.copyOf(endMs, capacity);
+        textStart = Arrays.copyOf(textStart, capacity);
+        textLength = Arrays.copyOf(textLength, capacity);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+    }
+}
@@ -7,14 +7,22 @@ public class VideoFile {
     private String duration;
     private boolean isRemote;
     private boolean isSelected;
+    private long lastModified;
+    // 相对视频路径的子目录，视频路径本身为 ""
+    private String folder;
 
     public VideoFile(String name, String path, long size, String duration, boolean isRemote) {
+        this(name, path, size, duration, isRemote, 0);
+    }
+
+    public VideoFile(String name, String path, long size, String duration, boolean isRemote, long lastModified) {
         this.name = name;
         this.path = path;
         this.size = size;
         this.duration = duration;
         this.isRemote = isRemote;
         this.isSelected = false;
+        this.lastModified = lastModified;
     }
 
     public String getName() { return name; }
@@ -29,6 +37,10 @@ public class VideoFile {
     public void setRemote(boolean remote) { isRemote = remote; }
     public boolean isSelected() { return isSelected; }
     public void setSelected(boolean selected) { isSelected = selected; }
+    public long getLastModified() { return lastModified; }
+    public void setLastModified(long lastModified) { this.lastModified = lastModified; }
+    public String getFolder() { return folder != null ? folder : ""; }
+    public void setFolder(String folder) { this.folder = folder; }
 
     public String getFormattedSize() {
         if (size < 1024) return size + " B";
@@ -7,6 +7,14 @@ public class WslConfig {
     private String password;
     private String videoPath;
     private boolean autoReconnect;
+    private int maxSessions;
+    private int recognitionConcurrency;
+    private int recognitionBatchSize;
+    private int transcribeStreams;
+    private EncodeProfile encodeProfile;
+    private int scanDepth;
+    private String includeGlobs;
+    private String excludeGlobs;
 
     public WslConfig() {
         this.windowsHost = "";
@@ -15,6 +23,14 @@ public class WslConfig {
         this.password = "";
         this.videoPath = "";
         this.autoReconnect = false;
+        this.maxSessions = 10;
+        this.recognitionConcurrency = 1;
+        this.recognitionBatchSize = 8;
+        this.transcribeStreams = 2;
+        this.encodeProfile = EncodeProfile.AUTO;
+        this.scanDepth = 0;
+        this.includeGlobs = "";
+        this.excludeGlobs = "";
     }
 
     public String getWindowsHost() { return windowsHost; }
@@ -29,6 +45,28 @@ public class WslConfig {
     public void setVideoPath(String videoPath) { this.videoPath = videoPath; }
     public boolean isAutoReconnect() { return autoReconnect; }
     public void setAutoReconnect(boolean autoReconnect) { this.autoReconnect = autoReconnect; }
+    public int getMaxSessions() { return maxSessions > 0 ? maxSessions : 10; }
+    public void setMaxSessions(int maxSessions) { this.maxSessions = maxSessions; }
+    // 同时运行的 autocut 进程数，单块显卡通常只适合 1 个
+    public int getRecognitionConcurrency() { return recognitionConcurrency > 0 ? recognitionConcurrency : 1; }
+    public void setRecognitionConcurrency(int recognitionConcurrency) { this.recognitionConcurrency = recognitionConcurrency; }
+    // 一次 autocut 调用处理的视频数，模型只加载一次
+    public int getRecognitionBatchSize() { return recognitionBatchSize > 0 ? recognitionBatchSize : 8; }
+    public void setRecognitionBatchSize(int recognitionBatchSize) { this.recognitionBatchSize = recognitionBatchSize; }
+    // 长视频分段后同时转写的 autocut 进程数，受显存限制
+    public int getTranscribeStreams() { return transcribeStreams > 0 ? transcribeStreams : 2; }
+    public void setTranscribeStreams(int transcribeStreams) { this.transcribeStreams = transcribeStreams; }
+    // 剪辑导出的视频编码方式，旧配置里没有这一项时为 AUTO
+    public EncodeProfile getEncodeProfile() { return encodeProfile != null ? encodeProfile : EncodeProfile.AUTO; }
+    public void setEncodeProfile(EncodeProfile encodeProfile) { this.encodeProfile = encodeProfile; }
+    // 列出视频路径下几层子目录，0 为只列视频路径本身
+    public int getScanDepth() { return Math.max(0, scanDepth); }
+    public void setScanDepth(int scanDepth) { this.scanDepth = scanDepth; }
+    // 逗号分隔的 glob，包含为空时列出全部视频
+    public String getIncludeGlobs() { return includeGlobs != null ? includeGlobs : ""; }
+    public void setIncludeGlobs(String includeGlobs) { this.includeGlobs = includeGlobs; }
+    public String getExcludeGlobs() { return excludeGlobs != null ? excludeGlobs : ""; }
+    public void setExcludeGlobs(String excludeGlobs) { this.excludeGlobs = excludeGlobs; }
 
     public boolean isValid() {
         return windowsHost != null && !windowsHost.isEmpty() &&
@@ -0,0 +1,126 @@
+package com.example.playerdemo.data.repository;
+
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+
+// 从本地视频中分离出音轨，不重新编码：MediaExtractor 读出压缩后的音频帧，MediaMuxer 原样写进新容器。
+// AAC 音轨写成 m4a，Opus/Vorbis（webm、mkv 常见）写成 webm，体积通常只有视频的百分之几
+class AudioExtractor {
+    private static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+
+    interface ProgressListener {
+        // 返回 false 表示取消
+        boolean onProgress(int percent);
+    }
+
+    static class Result {
+        final File file;
+        // 音轨第一帧在原视频里的时间，输出文件从 0 开始，映射回视频时要加上它
+        final long startUs;
+
+        Result(File file, long startUs) {
+            this.file = file;
+            this.startUs = startUs;
+        }
+    }
+
+    // 输出文件名为 baseName 加上按音频格式决定的扩展名
+    static Result extract(File video, File outDir, String baseName, ProgressListener listener) throws IOException {
+        MediaExtractor extractor = new MediaExtractor();
+        MediaMuxer muxer = null;
+        File output = null;
+        boolean finished = false;
+        try {
+            extractor.setDataSource(video.getAbsolutePath());
+            int track = -1;
+            MediaFormat format = null;
+            for (int i = 0; i < extractor.getTrackCount(); i++) {
+                MediaFormat candidate = extractor.getTrackFormat(i);
+                String mime = candidate.getString(MediaFormat.KEY_MIME);
+                if (mime != null && mime.startsWith("audio/")) {
+                    track = i;
+                    format = candidate;
+                    break;
+                }
+            }
+            if (track < 0) {
+                throw new IOException("视频中没有音轨");
+            }
+
+            String mime = format.getString(MediaFormat.KEY_MIME);
+            int outputFormat;
+            String extension;
+            if (MediaFormat.MIMETYPE_AUDIO_AAC.equals(mime)) {
+                outputFormat = MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4;
+                extension = ".m4a";
+            } else if (MediaFormat.MIMETYPE_AUDIO_OPUS.equals(mime) || MediaFormat.MIMETYPE_AUDIO_VORBIS.equals(mime)) {
+                outputFormat = MediaMuxer.OutputFormat.MUXER_OUTPUT_WEBM;
+                extension = ".webm";
+            } else {
+                throw new IOException("不支持直接分离的音频格式: " + mime);
+            }
+
+            outDir.mkdirs();
+            output = new File(outDir, baseName + extension);
+
+            extractor.selectTrack(track);
+            muxer = new MediaMuxer(output.getAbsolutePath(), outputFormat);
+            int outputTrack = muxer.addTrack(format);
+            muxer.start();
+
+            long durationUs = format.containsKey(MediaFormat.KEY_DURATION) ? format.getLong(MediaFormat.KEY_DURATION) : -1;
+            int bufferSize = format.containsKey(MediaFormat.KEY_MAX_INPUT_SIZE)
+                    ? format.getInteger(MediaFormat.KEY_MAX_INPUT_SIZE) : DEFAULT_BUFFER_SIZE;
+            ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(bufferSize, 4096));
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+            long startUs = -1;
+            int lastPercent = -1;
+
+            int size;
+            while ((size = extractor.readSampleData(buffer, 0)) >= 0) {
+                long timeUs = extractor.getSampleTime();
+                if (startUs < 0) {
+                    startUs = timeUs;
+                }
+                int flags = (extractor.getSampleFlags() & MediaExtractor.SAMPLE_FLAG_SYNC) != 0
+                        ? MediaCodec.BUFFER_FLAG_KEY_FRAME : 0;
+                info.set(0, size, timeUs - startUs, flags);
+                muxer.writeSampleData(outputTrack, buffer, info);
+
+                int percent = durationUs > 0 ? (int) Math.min(100, timeUs * 100 / durationUs) : 0;
+                if (percent != lastPercent) {
+                    lastPercent = percent;
+                    if (listener != null && !listener.onProgress(percent)) {
+                        throw new InterruptedIOException("已取消");
+                    }
+                }
+                extractor.advance();
+            }
+            muxer.stop();
+            finished = true;
+            return new Result(output, Math.max(0, startUs));
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            // MediaMuxer 用运行时异常报告格式问题
+            throw new IOException("分离音轨失败: " + e.getMessage(), e);
+        } finally {
+            if (muxer != null) {
+                try {
+                    muxer.release();
+                } catch (IllegalStateException ignored) {
+                    // 没有写入任何帧时 release 也可能报错
+                }
+            }
+            extractor.release();
+            if (!finished && output != null) {
+                output.delete();
+            }
+        }
+    }
+}
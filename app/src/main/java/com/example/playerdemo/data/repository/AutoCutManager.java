@@ -1,21 +1,72 @@
 package com.example.playerdemo.data.repository;
 
+import com.example.playerdemo.data.model.EncodeProfile;
+import com.example.playerdemo.data.model.MediaInfo;
 import com.example.playerdemo.data.model.SubtitleEntry;
+import com.example.playerdemo.data.model.SubtitleTrack;
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.SftpATTRS;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 public class AutoCutManager {
     private static AutoCutManager instance;
     private final SshManager sshManager;
-    private static final Pattern PROGRESS_PATTERN = Pattern.compile("(\\d+)%");
-    private static final Pattern FRAME_PATTERN = Pattern.compile("frame=(\\d+)");
-    private static final Pattern TIME_PATTERN = Pattern.compile("time=(\\d{2}):(\\d{2}):(\\d{2})");
+    private final TranscriptionWorker worker;
+    // 本应用启动、尚未结束的远程任务
+    // 本地文件的音轨分离、md 读写
+    private final ExecutorService localExecutor = Executors.newSingleThreadExecutor();
+    private static final String TRANSCRIBE_ARGS = "--device cuda --whisper-model large-v3-turbo";
+    // 进度回调的最小间隔，避免每行输出都刷新界面
+    private static final long PROGRESS_INTERVAL_MS = 250;
+    // 第一批只够填满一屏，后续批次大一些以减少列表刷新
+    private static final int MD_FIRST_BATCH_SIZE = 30;
+    private static final int MD_BATCH_SIZE = 500;
+    // 超过这个时长才分段转写，短视频分段反而多出切分和模型加载的开销
+    private static final long CHUNKED_MIN_DURATION_MS = 20 * 60 * 1000;
+    private static final long CHUNK_TARGET_MS = 10 * 60 * 1000;
+    private static final long CHUNK_SLACK_MS = 60 * 1000;
+    private static final String CHUNK_DIR = ".autocut_chunks";
+    // 分段转写时各阶段在总进度里的占比
+    private static final int EXTRACT_PERCENT = 10;
+    private static final int MERGE_PERCENT = 5;
+    // 本地视频识别时上传的音频放在主机视频目录下的这个子目录
+    private static final String LOCAL_AUDIO_DIR = ".autocut_audio";
+    private static final String TRANSCRIPT_DIR = "transcripts";
+    private static final int LOCAL_EXTRACT_PERCENT = 10;
+    private static final int LOCAL_UPLOAD_PERCENT = 15;
+    private static final String SMART_CUT_DIR = ".autocut_smartcut";
+    // 剪辑脚本在每个片段开始前输出的标记，用于计算进度
+    private static final String SMART_CUT_MARKER = "@@SEG ";
+    // 所有片段的音频统一重新编码，复制和重编码的片段才能直接拼接
+    private static final String SMART_CUT_AUDIO = "-map 0:v:0 -map '0:a:0?' -c:a aac -b:a 192k";
 
     private AutoCutManager() {
         this.sshManager = SshManager.getInstance();
+        this.worker = new TranscriptionWorker(sshManager, TRANSCRIBE_ARGS);
     }
 
     public static synchronized AutoCutManager getInstance() {
@@ -27,50 +78,60 @@ public class AutoCutManager {
 
     public interface RecognitionCallback {
         void onProgress(int progress, String message);
+        // 非进度类的输出行
+        default void onLog(String line) {}
         void onSuccess(String mdFilePath);
         void onFailure(String error);
     }
 
+    public interface BatchRecognitionCallback {
+        void onOutput(String line);
+        void onFileDone(String videoPath);
+        void onComplete(int exitCode);
+        void onError(String error);
+    }
+
     public interface CutCallback {
         void onProgress(int progress, String message);
+        default void onLog(String line) {}
         void onSuccess(String outputPath);
         void onFailure(String error);
     }
 
-    public void recognizeSubtitles(String videoPath, String outputPath, RecognitionCallback callback) {
-        String wslVideoPath = VideoManager.convertToWslPath(videoPath);
-        
-        String command = String.format(
-            "wsl -d Ubuntu2204 autocut -t %s --device cuda --whisper-model large-v3-turbo",
-            wslVideoPath
-        );
-
-        final int[] lastProgress = {0};
+    public RemoteJob recognizeSubtitles(String videoPath, String outputPath, RecognitionCallback callback) {
         final boolean[] success = {false};
-        
-        sshManager.executeCommand(command, new SshManager.CommandCallback() {
+        ProgressTracker tracker = new ProgressTracker(PROGRESS_INTERVAL_MS, snapshot -> {
+            if (callback != null) {
+                callback.onProgress(snapshot.getPercent(), snapshot.describe());
+            }
+        });
+        probeDurationMs(videoPath).thenAccept(tracker::setDurationMs);
+
+        return recognizeBatch(Collections.singletonList(videoPath), new BatchRecognitionCallback() {
             @Override
             public void onOutput(String line) {
-                if (line != null && (line.contains("Saved texts to") || line.contains("Transcribed"))) {
-                    success[0] = true;
+                if (tracker.onLine(line)) {
+                    return;
                 }
-                
-                int progress = parseProgress(line, lastProgress[0]);
-                if (progress > 0) {
-                    lastProgress[0] = progress;
-                } else if (line != null && line.contains("Done transcription")) {
-                    lastProgress[0] = 90;
+                String stage = recognitionStage(line);
+                if (stage != null) {
+                    tracker.setStage(stage);
                 }
-                
                 if (callback != null) {
-                    callback.onProgress(lastProgress[0], line);
+                    callback.onLog(line);
                 }
             }
 
+            @Override
+            public void onFileDone(String path) {
+                success[0] = true;
+            }
+
             @Override
             public void onComplete(int exitCode) {
                 String mdPath = VideoManager.convertToWslPath(getMdPathFromVideoPath(videoPath));
-                
+                tracker.finish(success[0] || exitCode == 0);
+
                 if (success[0] || exitCode == 0) {
                     if (callback != null) {
                         callback.onSuccess(mdPath);
@@ -84,13 +145,405 @@ public class AutoCutManager {
 
             @Override
             public void onError(String error) {
+                tracker.finish(false);
                 if (callback != null) {
                     callback.onFailure("字幕识别出错: " + error);
                 }
             }
         });
     }
-    
+
+    // 用 ffprobe 读取媒体时长（毫秒），失败时返回 -1。列表已经批量探测过的视频直接用缓存
+    public CompletableFuture<Long> probeDurationMs(String videoPath) {
+        MediaInfo cached = MediaProbeService.peek(videoPath);
+        if (cached != null && cached.getDurationMs() > 0) {
+            return CompletableFuture.completedFuture(cached.getDurationMs());
+        }
+        String command = "wsl -d Ubuntu2204 ffprobe -v error -show_entries format=duration -of default=nw=1:nk=1 \""
+                + VideoManager.convertToWslPath(videoPath) + "\"";
+        return sshManager.executeForOutputAsync(command)
+                .thenApply(output -> (long) (Double.parseDouble(output.trim()) * 1000))
+                .exceptionally(error -> -1L);
+    }
+
+    private static String recognitionStage(String line) {
+        if (line == null) return null;
+        if (line.contains("Init model") || line.contains("Loading")) return "加载模型";
+        if (line.contains("voice activity detection")) return "检测人声";
+        if (line.contains("Transcribing") || line.contains("transcription")) return "转写中";
+        return null;
+    }
+
+    // 长视频分段并行转写：ffmpeg 一遍解码把音轨转成 16k 单声道 wav，同时用 silencedetect 找静音；
+    // 在静音处把 wav 切成若干段，分给 streams 个 autocut 进程同时转写，
+    // 最后把每段 md 的时间加上该段起点，拼成和普通识别格式相同的 md。
+    // 失败时保留已转写的分段，重试时 autocut 会跳过已有 md 的分段。短视频直接走 recognizeSubtitles
+    public RemoteJob recognizeSubtitlesChunked(String videoPath, int streams, RecognitionCallback callback) {
+        RemoteJob job = newJob();
+        probeDurationMs(videoPath).thenAccept(durationMs -> {
+            if (durationMs < CHUNKED_MIN_DURATION_MS || streams <= 1) {
+                job.attach(recognizeSubtitles(videoPath, "", callback)::cancel);
+                return;
+            }
+            transcribeInChunks(job, videoPath, durationMs, streams, callback).whenComplete((mdPath, error) -> {
+                if (error == null) {
+                    callback.onProgress(100, "识别完成");
+                    callback.onSuccess(mdPath);
+                } else if (job.isCancelled()) {
+                    callback.onFailure("操作已取消");
+                } else {
+                    callback.onFailure("字幕识别出错: " + SshManager.describeError(error));
+                }
+            });
+        });
+        return job;
+    }
+
+    private CompletableFuture<String> transcribeInChunks(RemoteJob job, String videoPath, long durationMs,
+                                                         int streams, RecognitionCallback callback) {
+        int lastSlash = videoPath.lastIndexOf('/');
+        String fileName = videoPath.substring(lastSlash + 1);
+        int lastDot = fileName.lastIndexOf('.');
+        String chunkDir = videoPath.substring(0, lastSlash) + "/" + CHUNK_DIR + "/"
+                + (lastDot > 0 ? fileName.substring(0, lastDot) : fileName);
+        String wslChunkDir = VideoManager.convertToWslPath(chunkDir);
+
+        ChunkPlanner planner = new ChunkPlanner();
+        ProgressTracker tracker = new ProgressTracker(PROGRESS_INTERVAL_MS, snapshot ->
+                callback.onProgress(snapshot.getPercent() * EXTRACT_PERCENT / 100, snapshot.describe()));
+        tracker.setDurationMs(durationMs);
+        tracker.setStage("提取音频");
+
+        String extract = "ffmpeg -hide_banner -nostdin -y -i \"" + VideoManager.convertToWslPath(videoPath)
+                + "\" -vn -ac 1 -ar 16000 -af silencedetect=noise=-35dB:d=0.4 \"" + wslChunkDir + "/audio.wav\"";
+
+        return sshManager.executeForOutputAsync("wsl -d Ubuntu2204 mkdir -p \"" + wslChunkDir + "\"")
+                .thenCompose(ignored -> runStep(job.newChild(), extract, line -> {
+                    if (!planner.onLine(line) && !tracker.onLine(line)) {
+                        callback.onLog(line);
+                    }
+                }))
+                .thenCompose(ignored -> {
+                    tracker.finish(true);
+                    long[] cuts = planner.plan(durationMs, CHUNK_TARGET_MS, CHUNK_SLACK_MS);
+                    callback.onLog("按静音切成 " + (cuts.length + 1) + " 段，" + streams + " 路并行转写");
+                    String split = "ffmpeg -hide_banner -nostdin -y -i \"" + wslChunkDir + "/audio.wav\" -f segment"
+                            + (cuts.length > 0 ? " -segment_times " + ChunkPlanner.formatSegmentTimes(cuts) : "")
+                            + " -segment_list \"" + wslChunkDir + "/chunks.csv\" -segment_list_type csv -c copy \""
+                            + wslChunkDir + "/chunk_%03d.wav\"";
+                    return runStep(job.newChild(), split, line -> {});
+                })
+                .thenCompose(ignored -> sshManager.readRemoteFileAsync(chunkDir + "/chunks.csv"))
+                .thenCompose(csv -> {
+                    // 每行: chunk_000.wav,0.000000,600.128000，起点是切分后的实际时间
+                    List<String> chunks = new ArrayList<>();
+                    List<Long> offsets = new ArrayList<>();
+                    for (String row : csv.split("\n")) {
+                        String[] fields = row.trim().split(",");
+                        if (fields.length < 2) continue;
+                        chunks.add(chunkDir + "/" + fields[0]);
+                        offsets.add((long) (Double.parseDouble(fields[1]) * 1000));
+                    }
+                    if (chunks.isEmpty()) {
+                        throw new IllegalStateException("音频切分失败");
+                    }
+                    return transcribeChunks(job, chunks, streams, callback)
+                            .thenCompose(ignored -> mergeChunks(chunks, offsets));
+                })
+                .thenCompose(track -> {
+                    callback.onProgress(100 - MERGE_PERCENT, "合并字幕 " + track.size() + " 条");
+                    return sshManager.uploadContent(generateMdFile(track), mdPathFor(videoPath), null);
+                })
+                .thenApply(ignored -> {
+                    sshManager.executeForOutputAsync("wsl -d Ubuntu2204 rm -rf \"" + wslChunkDir + "\"");
+                    return VideoManager.convertToWslPath(getMdPathFromVideoPath(videoPath));
+                });
+    }
+
+    // 本地视频识别：在手机上分离出音轨（不重新编码）并只上传音频，在主机上照常识别，
+    // 再把 md 取回、按音轨起点平移时间后保存到应用目录（见 localMdFileFor），回调的是这个本地路径。
+    // remoteDir 为主机上的视频目录（SFTP 路径）
+    public RemoteJob recognizeLocalVideo(File video, File filesDir, String remoteDir, int streams,
+                                         RecognitionCallback callback) {
+        RemoteJob job = newJob();
+        File transcriptDir = new File(filesDir, TRANSCRIPT_DIR);
+        String remoteAudioDir = remoteDir + "/" + LOCAL_AUDIO_DIR;
+        File audioDir = new File(transcriptDir, LOCAL_AUDIO_DIR);
+
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                callback.onProgress(0, "分离音轨");
+                return AudioExtractor.extract(video, audioDir, localTranscriptKey(video), percent -> {
+                    callback.onProgress(percent * LOCAL_EXTRACT_PERCENT / 100, "分离音轨 " + percent + "%");
+                    return !job.isCancelled();
+                });
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, localExecutor).thenCompose(audio -> {
+            String remoteAudio = remoteAudioDir + "/" + audio.file.getName();
+            callback.onLog("音轨 " + audio.file.length() / 1024 + " KB（视频 " + video.length() / 1024 + " KB），上传到 " + remoteAudio);
+            return sshManager.executeForOutputAsync("wsl -d Ubuntu2204 mkdir -p \""
+                            + VideoManager.convertToWslPath(remoteAudioDir) + "\"")
+                    .thenCompose(ignored -> {
+                        CompletableFuture<Void> upload = sshManager.uploadFile(audio.file.getAbsolutePath(), remoteAudio,
+                                (progress, message) -> callback.onProgress(
+                                        LOCAL_EXTRACT_PERCENT + progress * LOCAL_UPLOAD_PERCENT / 100, "上传音频 " + progress + "%"));
+                        job.attach(() -> upload.cancel(true));
+                        return upload;
+                    })
+                    .thenCompose(ignored -> transcribeUploadedAudio(job, remoteAudio, streams, callback))
+                    .thenCompose(ignored -> sshManager.streamRemoteFile(mdPathFor(remoteAudio), in -> {
+                        // 音频从 0 开始，加上音轨在原视频中的起点
+                        SubtitleTrack track = new SubtitleTrack();
+                        long offsetMs = audio.startUs / 1000;
+                        new MdTranscriptParser(MD_BATCH_SIZE, MD_BATCH_SIZE).parse(
+                                new InputStreamReader(in, StandardCharsets.UTF_8), batch -> track.addAll(batch, offsetMs));
+                        return track;
+                    }))
+                    .thenApplyAsync(track -> {
+                        File mdFile = localMdFileFor(filesDir, video);
+                        try (Writer writer = new OutputStreamWriter(new FileOutputStream(mdFile), StandardCharsets.UTF_8)) {
+                            writer.write(generateMdFile(track));
+                        } catch (IOException e) {
+                            throw new CompletionException(e);
+                        }
+                        sshManager.executeForOutputAsync("wsl -d Ubuntu2204 rm -f \""
+                                + VideoManager.convertToWslPath(remoteAudio) + "\"");
+                        return mdFile.getAbsolutePath();
+                    }, localExecutor)
+                    .whenComplete((mdPath, error) -> audio.file.delete());
+        }).whenComplete((mdPath, error) -> {
+            if (error == null) {
+                callback.onProgress(100, "识别完成");
+                callback.onSuccess(mdPath);
+            } else if (job.isCancelled()) {
+                callback.onFailure("操作已取消");
+            } else {
+                callback.onFailure("字幕识别出错: " + SshManager.describeError(error));
+            }
+        });
+        return job;
+    }
+
+    // 在主机上识别已上传的音频，进度映射到本地识别的后半段
+    private CompletableFuture<Void> transcribeUploadedAudio(RemoteJob job, String remoteAudio, int streams,
+                                                            RecognitionCallback callback) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        int base = LOCAL_EXTRACT_PERCENT + LOCAL_UPLOAD_PERCENT;
+        RemoteJob transcription = recognizeSubtitlesChunked(remoteAudio, streams, new RecognitionCallback() {
+            @Override
+            public void onProgress(int progress, String message) {
+                callback.onProgress(base + progress * (100 - base) / 100, message);
+            }
+
+            @Override
+            public void onLog(String line) {
+                callback.onLog(line);
+            }
+
+            @Override
+            public void onSuccess(String mdFilePath) {
+                done.complete(null);
+            }
+
+            @Override
+            public void onFailure(String error) {
+                done.completeExceptionally(new IOException(error));
+            }
+        });
+        job.attach(transcription::cancel);
+        return done;
+    }
+
+    // 本地视频的字幕保存在应用目录，按 localTranscriptKey 命名
+    public static File localMdFileFor(File filesDir, File video) {
+        return new File(new File(filesDir, TRANSCRIPT_DIR), localTranscriptKey(video) + ".md");
+    }
+
+    // 本地列表覆盖所有目录，不同目录下常有同名视频（如 VID_0001.mp4）；
+    // 文件名后面加上 完整路径 + 大小 + 修改时间 的哈希，字幕、分离出的音轨和主机上的音频都用它命名
+    private static String localTranscriptKey(File video) {
+        String name = video.getName();
+        int lastDot = name.lastIndexOf('.');
+        String stem = lastDot > 0 ? name.substring(0, lastDot) : name;
+        return stem + "-" + SmartCutPlanner.shortHash(
+                video.getAbsolutePath() + "|" + video.length() + "|" + video.lastModified());
+    }
+
+    // 分段轮流分给 streams 组，每组一个 autocut 进程；常驻转写进程只有一个，这里不使用
+    private CompletableFuture<Void> transcribeChunks(RemoteJob job, List<String> chunks, int streams,
+                                                     RecognitionCallback callback) {
+        int groups = Math.min(streams, chunks.size());
+        AtomicInteger done = new AtomicInteger();
+        List<CompletableFuture<Integer>> futures = new ArrayList<>(groups);
+        for (int g = 0; g < groups; g++) {
+            List<String> group = new ArrayList<>();
+            for (int i = g; i < chunks.size(); i += groups) {
+                group.add(chunks.get(i));
+            }
+            futures.add(recognizeBatchOneShot(group, new BatchRecognitionCallback() {
+                @Override
+                public void onOutput(String line) {
+                    callback.onLog(line);
+                }
+
+                @Override
+                public void onFileDone(String chunkPath) {
+                    int finished = done.incrementAndGet();
+                    int span = 100 - EXTRACT_PERCENT - MERGE_PERCENT;
+                    callback.onProgress(EXTRACT_PERCENT + span * finished / chunks.size(),
+                            "转写中 " + finished + "/" + chunks.size());
+                }
+
+                @Override
+                public void onComplete(int exitCode) {}
+
+                @Override
+                public void onError(String error) {}
+            }, job.newChild()));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenRun(() -> {
+            for (CompletableFuture<Integer> future : futures) {
+                int exitCode = future.join();
+                if (exitCode != 0) {
+                    throw new IllegalStateException("分段转写失败，退出码: " + exitCode);
+                }
+            }
+        });
+    }
+
+    // 按顺序读取每段的 md，时间加上该段起点后接到一条字幕轨上
+    private CompletableFuture<SubtitleTrack> mergeChunks(List<String> chunks, List<Long> offsets) {
+        SubtitleTrack merged = new SubtitleTrack();
+        CompletableFuture<?> chain = CompletableFuture.completedFuture(null);
+        for (int i = 0; i < chunks.size(); i++) {
+            String mdPath = mdPathFor(chunks.get(i));
+            long offset = offsets.get(i);
+            chain = chain.thenCompose(ignored -> sshManager.streamRemoteFile(mdPath, in ->
+                    new MdTranscriptParser(MD_BATCH_SIZE, MD_BATCH_SIZE).parse(
+                            new InputStreamReader(in, StandardCharsets.UTF_8),
+                            batch -> merged.addAll(batch, offset))));
+        }
+        return chain.thenApply(ignored -> merged);
+    }
+
+    private CompletableFuture<Integer> runStep(RemoteJob job, String command, Consumer<String> onLine) {
+        CompletableFuture<Integer> future = sshManager.executeCommand(job.wrap(command) + " 2>&1",
+                new SshManager.CommandCallback() {
+            @Override
+            public void onOutput(String line) {
+                if (line != null && !job.consumeMarker(line)) {
+                    onLine.accept(line);
+                }
+            }
+
+            @Override
+            public void onComplete(int exitCode) {}
+
+            @Override
+            public void onError(String error) {}
+        });
+        job.attach(() -> future.cancel(true));
+        return future.thenApply(exitCode -> {
+            if (exitCode != 0) {
+                throw new IllegalStateException("命令执行失败，退出码: " + exitCode);
+            }
+            return exitCode;
+        });
+    }
+
+    // 优先交给常驻转写进程，模型已在显存里，省掉每次启动 autocut 的加载时间；
+    // 进程不可用或请求失败时回退到一次性命令，autocut 会跳过已经生成 md 的视频
+    public RemoteJob recognizeBatch(List<String> videoPaths, BatchRecognitionCallback callback) {
+        RemoteJob job = newJob();
+        Map<String, String> videoByInput = new HashMap<>();
+        List<String> inputs = new ArrayList<>(videoPaths.size());
+        for (String videoPath : videoPaths) {
+            String input = VideoManager.convertToWslPath(videoPath);
+            inputs.add(input);
+            videoByInput.put(input, videoPath);
+        }
+
+        worker.transcribe(inputs, new TranscriptionWorker.Listener() {
+            @Override
+            public void onLog(String line) {
+                callback.onOutput(line);
+            }
+
+            @Override
+            public void onFileDone(String input) {
+                String videoPath = videoByInput.get(input);
+                if (videoPath != null) {
+                    callback.onFileDone(videoPath);
+                }
+            }
+        }, job).handle((ignored, error) -> {
+            if (error == null) {
+                callback.onComplete(0);
+                return CompletableFuture.completedFuture(0);
+            }
+            if (job.isCancelled()) {
+                callback.onError("操作已取消");
+                return CompletableFuture.completedFuture(-1);
+            }
+            callback.onOutput("常驻转写进程不可用，改用 autocut 命令: " + SshManager.describeError(error));
+            return recognizeBatchOneShot(videoPaths, callback, job);
+        }).thenCompose(future -> future);
+        return job;
+    }
+
+    // 一次 autocut 调用转写多个视频，whisper 模型只加载一次。
+    // autocut 的日志写在 stderr，合并到 stdout 后按文件名识别每个视频何时完成
+    private CompletableFuture<Integer> recognizeBatchOneShot(List<String> videoPaths, BatchRecognitionCallback callback,
+                                                             RemoteJob job) {
+        StringBuilder command = new StringBuilder("autocut -t");
+        List<String> mdNames = new ArrayList<>(videoPaths.size());
+        for (String videoPath : videoPaths) {
+            command.append(" \"").append(VideoManager.convertToWslPath(videoPath)).append('"');
+            String mdPath = mdPathFor(videoPath);
+            mdNames.add(mdPath.substring(mdPath.lastIndexOf('/') + 1));
+        }
+        command.append(" ").append(TRANSCRIBE_ARGS);
+
+        boolean[] reported = new boolean[videoPaths.size()];
+        CompletableFuture<Integer> future = sshManager.executeCommand(job.wrap(command.toString()) + " 2>&1",
+                new SshManager.CommandCallback() {
+            @Override
+            public void onOutput(String line) {
+                if (line == null || job.consumeMarker(line)) return;
+                if (line.contains("Transcribed") || line.contains("Saved texts to") || line.contains("exists, skipping")) {
+                    for (int i = 0; i < mdNames.size(); i++) {
+                        if (!reported[i] && line.contains(mdNames.get(i))) {
+                            reported[i] = true;
+                            callback.onFileDone(videoPaths.get(i));
+                        }
+                    }
+                }
+                callback.onOutput(line);
+            }
+
+            @Override
+            public void onComplete(int exitCode) {
+                callback.onComplete(exitCode);
+            }
+
+            @Override
+            public void onError(String error) {
+                callback.onError(error);
+            }
+        });
+        job.attach(() -> future.cancel(true));
+        return future;
+    }
+
+    // autocut 在视频旁边生成同名 md 文件，返回它的 SFTP 路径
+    public static String mdPathFor(String videoPath) {
+        int lastDot = videoPath.lastIndexOf('.');
+        int lastSlash = videoPath.lastIndexOf('/');
+        return (lastDot > lastSlash ? videoPath.substring(0, lastDot) : videoPath) + ".md";
+    }
+
     private String getMdPathFromVideoPath(String videoPath) {
         if (videoPath == null || videoPath.isEmpty()) {
             return "";
@@ -106,35 +559,39 @@ public class AutoCutManager {
         return videoPath + ".md";
     }
 
-    public void cutVideo(String videoPath, String mdPath, String outputPath, CutCallback callback) {
+    public RemoteJob cutVideo(String videoPath, String mdPath, String outputPath, CutCallback callback) {
         String wslVideoPath = VideoManager.convertToWslPath(videoPath);
         String wslMdPath = VideoManager.convertToWslPath(mdPath);
         String wslOutputPath = VideoManager.convertToWslPath(outputPath);
         
         String command = String.format(
-            "wsl -d Ubuntu2204 autocut -c \"%s\" -s \"%s\" -o \"%s\"",
+            "autocut -c \"%s\" -s \"%s\" -o \"%s\"",
             wslVideoPath,
             wslMdPath,
             wslOutputPath
         );
 
-        final int[] lastProgress = {0};
-        
-        sshManager.executeCommand(command, new SshManager.CommandCallback() {
+        ProgressTracker tracker = new ProgressTracker(PROGRESS_INTERVAL_MS, snapshot -> {
+            if (callback != null) {
+                callback.onProgress(snapshot.getPercent(), snapshot.describe());
+            }
+        });
+        tracker.setStage("剪辑中");
+
+        RemoteJob job = newJob();
+        CompletableFuture<Integer> future = sshManager.executeCommand(job.wrap(command) + " 2>&1",
+                new SshManager.CommandCallback() {
             @Override
             public void onOutput(String line) {
-                int progress = parseCutProgress(line, lastProgress[0]);
-                if (progress > 0) {
-                    lastProgress[0] = progress;
-                }
-                
-                if (callback != null) {
-                    callback.onProgress(progress, line);
+                if (job.consumeMarker(line)) return;
+                if (!tracker.onLine(line) && callback != null) {
+                    callback.onLog(line);
                 }
             }
 
             @Override
             public void onComplete(int exitCode) {
+                tracker.finish(exitCode == 0);
                 if (exitCode == 0) {
                     if (callback != null) {
                         callback.onSuccess(outputPath);
@@ -148,128 +605,476 @@ public class AutoCutManager {
 
             @Override
             public void onError(String error) {
+                tracker.finish(false);
                 if (callback != null) {
                     callback.onFailure("视频剪辑出错: " + error);
                 }
             }
         });
+        job.attach(() -> future.cancel(true));
+        return job;
     }
 
-    public void cancelOperation() {
-        sshManager.executeCommand("pkill -f autocut", new SshManager.CommandCallback() {
-            @Override
-            public void onOutput(String line) {}
+    // 按指定的编码方式剪辑：用 ffmpeg 的 select 滤镜一次性取出所有保留区间并重新编码，
+    // 可以用上主机的 NVENC / QSV；COPY 用 concat 的 inpoint/outpoint 直接复制码流，剪切点落在关键帧上。
+    // profile 为 null 或 AUTO 时交给 autocut；ffmpeg 失败时同样回退到 autocut
+    public RemoteJob cutVideo(String videoPath, String mdPath, String outputPath, EncodeProfile profile,
+                              CutCallback callback) {
+        if (profile == null || profile == EncodeProfile.AUTO) {
+            return cutVideo(videoPath, mdPath, outputPath, callback);
+        }
+        RemoteJob job = newJob();
+        String wslVideo = VideoManager.convertToWslPath(videoPath);
+        String wslOutput = VideoManager.convertToWslPath(outputPath);
+        String outputName = outputPath.substring(outputPath.lastIndexOf('/') + 1);
+        String workDir = outputPath.substring(0, outputPath.lastIndexOf('/')) + "/" + SMART_CUT_DIR;
+        String wslWorkDir = VideoManager.convertToWslPath(workDir);
+        boolean copy = profile == EncodeProfile.COPY;
+        String scriptName = outputName + (copy ? ".concat.txt" : ".filter");
+        SubtitleTrack track = new SubtitleTrack();
 
-            @Override
-            public void onComplete(int exitCode) {}
+        ProgressTracker tracker = new ProgressTracker(PROGRESS_INTERVAL_MS, snapshot ->
+                callback.onProgress(snapshot.getPercent(), snapshot.describe()));
+        tracker.setStage("剪辑中 (" + profile.getLabel() + ")");
 
-            @Override
-            public void onError(String error) {}
-        });
+        loadMdFile(mdPath, track::addAll)
+                .thenCompose(count -> {
+                    long[] ranges = SmartCutPlanner.keptRanges(track);
+                    if (ranges.length == 0) {
+                        throw new IllegalStateException("没有保留的字幕");
+                    }
+                    long totalUs = 0;
+                    for (int i = 0; i + 1 < ranges.length; i += 2) {
+                        totalUs += ranges[i + 1] - ranges[i];
+                    }
+                    tracker.setDurationMs(totalUs / 1000);
+                    String content = copy ? buildConcatList(wslVideo, ranges) : buildSelectFilter(ranges);
+                    return sshManager.executeForOutputAsync("wsl -d Ubuntu2204 mkdir -p \"" + wslWorkDir + "\"")
+                            .thenCompose(ignored -> sshManager.uploadContent(content, workDir + "/" + scriptName, null));
+                })
+                .thenCompose(ignored -> {
+                    String script = wslWorkDir + "/" + scriptName;
+                    String command = copy
+                            ? "ffmpeg -hide_banner -nostdin -y -f concat -safe 0 -i \"" + script + "\""
+                                + " -map 0:v:0 -map \"0:a:0?\" -c copy -avoid_negative_ts make_zero"
+                            : "ffmpeg -hide_banner -nostdin -y -i \"" + wslVideo + "\" -filter_complex_script \""
+                                + script + "\" -map \"[v]\" -map \"[a]\" " + profile.videoArgs()
+                                + ("hevc".equals(profile.getCodec()) ? " -tag:v hvc1" : "")
+                                + " -c:a aac -b:a 192k";
+                    return runStep(job.newChild(), command + " -movflags +faststart \"" + wslOutput + "\"", line -> {
+                        if (!tracker.onLine(line)) {
+                            callback.onLog(line);
+                        }
+                    });
+                })
+                .whenComplete((ignored, error) -> {
+                    tracker.finish(error == null);
+                    sshManager.executeForOutputAsync("wsl -d Ubuntu2204 rm -f \"" + wslWorkDir + "/" + scriptName + "\"");
+                    if (error == null) {
+                        callback.onProgress(100, "剪辑完成");
+                        callback.onSuccess(outputPath);
+                    } else if (job.isCancelled()) {
+                        callback.onFailure("操作已取消");
+                    } else {
+                        callback.onLog(profile.getLabel() + " 剪辑失败，改用 autocut: " + SshManager.describeError(error));
+                        job.attach(cutVideo(videoPath, mdPath, outputPath, callback)::cancel);
+                    }
+                });
+        return job;
     }
 
-    public List<SubtitleEntry> parseMdFile(String mdContent) {
-        List<SubtitleEntry> entries = new ArrayList<>();
-        if (mdContent == null || mdContent.isEmpty()) {
-            return entries;
+    // 视频和音频用同一组区间筛选帧，再重新生成连续的时间戳
+    private static String buildSelectFilter(long[] ranges) {
+        StringBuilder expr = new StringBuilder();
+        for (int i = 0; i + 1 < ranges.length; i += 2) {
+            if (expr.length() > 0) expr.append('+');
+            expr.append("between(t,").append(SmartCutPlanner.seconds(ranges[i]))
+                    .append(',').append(SmartCutPlanner.seconds(ranges[i + 1])).append(')');
         }
+        return "[0:v:0]select='" + expr + "',setpts=N/FRAME_RATE/TB[v];"
+                + "[0:a:0]aselect='" + expr + "',asetpts=N/SR/TB[a]\n";
+    }
 
-        String[] blocks = mdContent.split("\n\n");
-        Pattern timePattern = Pattern.compile(
-            "(\\d{2}:\\d{2}:\\d{2}\\.\\d{3})\\s*-->\\s*(\\d{2}:\\d{2}:\\d{2}\\.\\d{3})"
-        );
+    // concat demuxer 的列表，同一个文件按区间重复列出
+    private static String buildConcatList(String input, long[] ranges) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i + 1 < ranges.length; i += 2) {
+            sb.append("file ").append(shellQuote(input)).append('\n');
+            sb.append("inpoint ").append(SmartCutPlanner.seconds(ranges[i])).append('\n');
+            sb.append("outpoint ").append(SmartCutPlanner.seconds(ranges[i + 1])).append('\n');
+        }
+        return sb.toString();
+    }
 
-        int index = 0;
-        for (String block : blocks) {
-            String trimmed = block.trim();
-            if (trimmed.isEmpty()) continue;
-
-            Matcher matcher = timePattern.matcher(trimmed);
-            if (matcher.find()) {
-                String startTime = matcher.group(1);
-                String endTime = matcher.group(2);
-                String content = trimmed.replaceAll(timePattern.pattern(), "").trim();
-
-                entries.add(new SubtitleEntry(
-                    String.valueOf(index + 1),
-                    startTime,
-                    endTime,
-                    content,
-                    true,
-                    index
-                ));
-                index++;
-            }
+    // 探测主机可用的编码方式，单条命令失败只说明对应的硬件不可用
+    public CompletableFuture<Set<EncodeProfile>> probeEncodeProfiles() {
+        CompletableFuture<String> encoders = probeOutput(EncoderProbe.ENCODERS_COMMAND);
+        CompletableFuture<String> gpus = probeOutput(EncoderProbe.GPU_COMMAND);
+        CompletableFuture<String> dri = probeOutput(EncoderProbe.DRI_COMMAND);
+        return CompletableFuture.allOf(encoders, gpus, dri)
+                .thenApply(ignored -> EncoderProbe.parse(encoders.join(), gpus.join(), dri.join()));
+    }
+
+    // 得到实际使用的编码方式：配置为 AUTO 或主机不支持所选方式时按能力自动选择，硬件编码优先。
+    // 主机能力缓存在 ConfigManager，只在第一次连接到这台主机时探测。返回 null 表示交给 autocut
+    public CompletableFuture<EncodeProfile> resolveEncodeProfile(ConfigManager configManager) {
+        EncodeProfile preferred = configManager.getWslConfig().getEncodeProfile();
+        Set<EncodeProfile> cached = configManager.getEncodeCapabilities();
+        CompletableFuture<Set<EncodeProfile>> available = cached != null
+                ? CompletableFuture.completedFuture(cached)
+                : probeEncodeProfiles().thenApply(profiles -> {
+                    // 只有 COPY 说明连 ffmpeg 都没探测到，可能是连接问题，不缓存
+                    if (profiles.size() > 1) {
+                        configManager.saveEncodeCapabilities(profiles);
+                    }
+                    return profiles;
+                });
+        return available.thenApply(profiles -> preferred != EncodeProfile.AUTO && profiles.contains(preferred)
+                ? preferred : EncoderProbe.best(profiles));
+    }
+
+    private CompletableFuture<String> probeOutput(String command) {
+        return sshManager.executeForOutputAsync("wsl -d Ubuntu2204 " + command)
+                .handle((output, error) -> error == null ? output : "");
+    }
+
+    // 智能剪辑：从 md 保留的字幕得到区间，关键帧之间的部分直接复制码流，只重新编码区间两端不足一个 GOP 的部分。
+    // 片段都输出为 MPEG-TS（SPS/PPS 随码流携带），再用 concat 无损拼接成 mp4；
+    // 所有片段命令写成一个脚本在主机上一次执行，避免每段都启动一次 wsl。
+    // 片段和关键帧列表缓存在主机上，按视频（路径、大小、修改时间）分目录，片段按区间和编码参数命名，
+    // 修改几行字幕后再次剪辑只需渲染变化的片段再拼接。
+    // 两端的重新编码在 profile 是同一编码的硬件编码器时交给 GPU；COPY 不做智能剪辑，直接按关键帧剪切。
+    // 视频编码不是 h264/hevc 或智能剪辑失败时，回退到按 profile 整段重新编码
+    public RemoteJob smartCutVideo(String videoPath, String mdPath, String outputPath, EncodeProfile profile,
+                                   CutCallback callback) {
+        if (profile == EncodeProfile.COPY) {
+            return cutVideo(videoPath, mdPath, outputPath, profile, callback);
+        }
+        RemoteJob job = newJob();
+        String wslVideo = VideoManager.convertToWslPath(videoPath);
+        // 每个视频一个按完整路径哈希命名的目录，不同目录下的同名视频互不影响
+        String videoCacheDir = outputPath.substring(0, outputPath.lastIndexOf('/')) + "/" + SMART_CUT_DIR
+                + "/" + SmartCutPlanner.shortHash(videoPath);
+        SubtitleTrack track = new SubtitleTrack();
+
+        callback.onProgress(0, "分析关键帧");
+        CompletableFuture<String> streamInfo = sshManager.executeForOutputAsync(
+                "wsl -d Ubuntu2204 ffprobe -v error -select_streams v:0 -show_entries stream=codec_name,pix_fmt"
+                        + ":format=start_time -of default=nw=1 \"" + wslVideo + "\"");
+        CompletableFuture<SftpATTRS> videoStat = sshManager.statAsync(videoPath);
+
+        loadMdFile(mdPath, track::addAll)
+                .thenCompose(count -> streamInfo)
+                .thenCombine(videoStat, SourceInfo::new)
+                .thenCompose(source -> {
+                    String info = source.streamInfo;
+                    SftpATTRS attrs = source.attrs;
+                    String codec = probeField(info, "codec_name");
+                    String encoder = smartCutEncoder(codec, probeField(info, "pix_fmt"), profile);
+                    if (encoder == null) {
+                        throw new IllegalStateException("视频编码 " + codec + " 不支持智能剪辑");
+                    }
+                    long[] ranges = SmartCutPlanner.keptRanges(track);
+                    if (ranges.length == 0) {
+                        throw new IllegalStateException("没有保留的字幕");
+                    }
+
+                    // 视频内容变化后换一个子目录，旧版本在拼接成功后删除
+                    String cacheName = SmartCutPlanner.shortHash(videoPath + "|" + attrs.getSize() + "|" + attrs.getMTime());
+                    String cacheDir = videoCacheDir + "/" + cacheName;
+                    String wslCacheDir = VideoManager.convertToWslPath(cacheDir);
+                    String paramsKey = SmartCutPlanner.shortHash(encoder + "|" + SMART_CUT_AUDIO);
+                    // 没有 start_time（N/A）时按 0 处理
+                    long startUs = Math.max(0, SmartCutPlanner.parseSecondsUs(
+                            String.valueOf(probeField(info, "start_time"))));
+
+                    return sshManager.executeForOutputAsync("wsl -d Ubuntu2204 mkdir -p \"" + wslCacheDir + "\"")
+                            .thenCompose(ignored -> loadKeyframes(job.newChild(), wslVideo, cacheDir, startUs))
+                            .thenCombine(listCachedPieces(cacheDir), (keyframes, cached) -> {
+                                List<SmartCutPlanner.Piece> pieces = SmartCutPlanner.plan(ranges, keyframes);
+                                List<String> names = new ArrayList<>(pieces.size());
+                                boolean[] render = new boolean[pieces.size()];
+                                int reused = 0;
+                                for (int i = 0; i < pieces.size(); i++) {
+                                    names.add(SmartCutPlanner.pieceName(pieces.get(i), paramsKey));
+                                    render[i] = !cached.contains(names.get(i));
+                                    if (!render[i]) reused++;
+                                }
+                                callback.onLog("共 " + pieces.size() + " 个片段，复用缓存 " + reused + " 个");
+                                return new CutPlan(pieces, names, render);
+                            })
+                            .thenCompose(plan -> {
+                                String script = buildSmartCutScript(wslVideo, wslCacheDir, cacheName,
+                                        VideoManager.convertToWslPath(outputPath), plan.pieces, plan.names,
+                                        plan.render, encoder, codec);
+                                return sshManager.uploadContent(script, cacheDir + "/cut.sh", null)
+                                        .thenCompose(ignored -> runSmartCutScript(job.newChild(), wslCacheDir,
+                                                plan.pieces, plan.render, callback));
+                            });
+                })
+                .whenComplete((ignored, error) -> {
+                    if (error == null) {
+                        callback.onProgress(100, "剪辑完成");
+                        callback.onSuccess(outputPath);
+                    } else if (job.isCancelled()) {
+                        callback.onFailure("操作已取消");
+                    } else {
+                        callback.onLog("智能剪辑不可用，改为整段重新编码: " + SshManager.describeError(error));
+                        job.attach(cutVideo(videoPath, mdPath, outputPath, profile, callback)::cancel);
+                    }
+                });
+        return job;
+    }
+
+    // 智能剪辑前探测到的源视频信息：ffprobe 的流参数输出和文件属性
+    private static class SourceInfo {
+        final String streamInfo;
+        final SftpATTRS attrs;
+
+        SourceInfo(String streamInfo, SftpATTRS attrs) {
+            this.streamInfo = streamInfo;
+            this.attrs = attrs;
         }
+    }
+
+    // 片段划分结果，render[i] 为 false 的片段直接复用缓存
+    private static class CutPlan {
+        final List<SmartCutPlanner.Piece> pieces;
+        final List<String> names;
+        final boolean[] render;
 
-        return entries;
+        CutPlan(List<SmartCutPlanner.Piece> pieces, List<String> names, boolean[] render) {
+            this.pieces = pieces;
+            this.names = names;
+            this.render = render;
+        }
     }
 
-    public String generateMdFile(List<SubtitleEntry> entries) {
-        StringBuilder sb = new StringBuilder();
-        
-        for (SubtitleEntry entry : entries) {
-            if (entry.isKept()) {
-                sb.append(entry.getStartTime()).append(" --> ").append(entry.getEndTime()).append("\n");
-                sb.append(entry.getContent()).append("\n\n");
+    // 关键帧列表先读缓存，没有时再用 ffprobe 扫描并写回缓存。
+    // 缓存里是 ffprobe 给出的绝对 pts，而输入端 -ss 和字幕时间都从 start_time 算起，返回前减去 startUs
+    private CompletableFuture<long[]> loadKeyframes(RemoteJob job, String wslVideo, String cacheDir, long startUs) {
+        String cacheFile = cacheDir + "/keyframes.txt";
+        return sshManager.readRemoteFileAsync(cacheFile)
+                .thenApply(SmartCutPlanner::parseKeyframes)
+                .handle((keyframes, error) -> {
+                    if (error == null && keyframes.length > 0) {
+                        return CompletableFuture.completedFuture(keyframes);
+                    }
+                    return probeKeyframes(job, wslVideo).thenCompose(probed ->
+                            sshManager.uploadContent(SmartCutPlanner.formatKeyframes(probed), cacheFile, null)
+                                    .handle((ignored, uploadError) -> probed));
+                })
+                .thenCompose(future -> future)
+                .thenApply(keyframes -> {
+                    long[] relative = new long[keyframes.length];
+                    for (int i = 0; i < keyframes.length; i++) {
+                        relative[i] = Math.max(0, keyframes[i] - startUs);
+                    }
+                    return relative;
+                });
+    }
+
+    private CompletableFuture<Set<String>> listCachedPieces(String cacheDir) {
+        return sshManager.listFilesAsync(cacheDir).handle((entries, error) -> {
+            Set<String> names = new HashSet<>();
+            if (entries != null) {
+                for (ChannelSftp.LsEntry entry : entries) {
+                    if (entry.getFilename().endsWith(".ts") && entry.getAttrs().getSize() > 0) {
+                        names.add(entry.getFilename());
+                    }
+                }
+            }
+            return names;
+        });
+    }
+
+    // 只读视频流的数据包，不解码，取带 K 标记的关键帧时间
+    private CompletableFuture<long[]> probeKeyframes(RemoteJob job, String wslVideo) {
+        long[][] keys = {new long[1024]};
+        int[] count = {0};
+        String command = "ffprobe -v error -select_streams v:0 -show_entries packet=pts_time,flags -of csv=p=0 \""
+                + wslVideo + "\"";
+        return runStep(job, command, line -> {
+            int comma = line.indexOf(',');
+            if (comma <= 0 || line.indexOf('K', comma) < 0) return;
+            long us = SmartCutPlanner.parseSecondsUs(line.substring(0, comma));
+            if (us < 0) return;
+            if (count[0] == keys[0].length) {
+                keys[0] = Arrays.copyOf(keys[0], count[0] * 2);
             }
+            keys[0][count[0]++] = us;
+        }).thenApply(ignored -> {
+            // 数据包按解码顺序输出，有 B 帧时 pts 不一定递增
+            long[] result = Arrays.copyOf(keys[0], count[0]);
+            Arrays.sort(result);
+            return result;
+        });
+    }
+
+    // 进度只按需要渲染的片段时长计算，复用的片段不占进度
+    private CompletableFuture<Integer> runSmartCutScript(RemoteJob job, String wslCacheDir,
+                                                         List<SmartCutPlanner.Piece> pieces, boolean[] render,
+                                                         CutCallback callback) {
+        long[] doneBefore = new long[pieces.size() + 1];
+        int renderCount = 0;
+        for (int i = 0; i < pieces.size(); i++) {
+            doneBefore[i + 1] = doneBefore[i] + (render[i] ? pieces.get(i).durationUs() : 0);
+            if (render[i]) renderCount++;
         }
-        
-        return sb.toString();
+        long total = Math.max(1, doneBefore[pieces.size()]);
+        int totalRender = renderCount;
+        int[] rendered = {0};
+        int[] lastPercent = {-1};
+
+        return runStep(job, "sh \"" + wslCacheDir + "/cut.sh\"", line -> {
+            if (!line.startsWith(SMART_CUT_MARKER)) {
+                callback.onLog(line);
+                return;
+            }
+            String value = line.substring(SMART_CUT_MARKER.length()).trim();
+            if ("concat".equals(value)) {
+                callback.onProgress(95, "拼接片段");
+                return;
+            }
+            int index = Integer.parseInt(value);
+            rendered[0]++;
+            int percent = (int) (doneBefore[index] * 95 / total);
+            if (percent != lastPercent[0]) {
+                lastPercent[0] = percent;
+                callback.onProgress(percent, "剪辑中  片段 " + rendered[0] + "/" + totalRender);
+            }
+        });
     }
 
-    private int parseProgress(String line, int lastProgress) {
-        if (line == null) return lastProgress;
-        
-        if (line.contains("Init model")) {
-            return 5;
+    // 片段先写到 .tmp 再改名，中途失败或取消不会留下不完整的缓存；
+    // 重新编码的片段带着自己的 VPS/SPS/PPS，HEVC 用 hev1 允许参数集出现在码流里；
+    // 拼接成功后删除本次没用到的片段，以及这个视频目录下其他版本的缓存
+    private static String buildSmartCutScript(String input, String cacheDir, String cacheName, String output,
+                                              List<SmartCutPlanner.Piece> pieces, List<String> names,
+                                              boolean[] render, String encoder, String codec) {
+        String common = "ffmpeg -hide_banner -nostdin -loglevel error -y";
+        StringBuilder sb = new StringBuilder("set -e\n");
+        sb.append("cd ").append(shellQuote(cacheDir)).append('\n');
+        sb.append("IN=").append(shellQuote(input)).append('\n');
+        sb.append("cat > list.txt <<'EOF'\n");
+        for (String name : names) {
+            sb.append("file '").append(name).append("'\n");
         }
-        if (line.contains("Transcribing") || line.contains("voice activity detection")) {
-            return Math.min(lastProgress + 10, 50);
+        sb.append("EOF\n");
+
+        for (int i = 0; i < pieces.size(); i++) {
+            if (!render[i]) continue;
+            SmartCutPlanner.Piece piece = pieces.get(i);
+            String name = names.get(i);
+            sb.append("if [ ! -s ").append(name).append(" ]; then\n");
+            sb.append("echo ").append(SMART_CUT_MARKER).append(i).append('\n');
+            sb.append(common)
+                    .append(" -ss ").append(SmartCutPlanner.seconds(piece.startUs))
+                    .append(" -i \"$IN\" -t ").append(SmartCutPlanner.seconds(piece.durationUs()))
+                    .append(' ').append(SMART_CUT_AUDIO)
+                    .append(' ').append(piece.copy ? "-c:v copy" : encoder)
+                    .append(" -f mpegts ").append(name).append(".tmp\n");
+            sb.append("mv ").append(name).append(".tmp ").append(name).append('\n');
+            sb.append("fi\n");
         }
-        if (line.contains("transcription")) {
-            return Math.min(lastProgress + 30, 80);
+
+        sb.append("echo ").append(SMART_CUT_MARKER).append("concat\n");
+        sb.append(common).append(" -f concat -safe 0 -i list.txt -map 0 -c copy -bsf:a aac_adtstoasc")
+                .append("hevc".equals(codec) ? " -tag:v hev1" : "")
+                .append(" -movflags +faststart ").append(shellQuote(output)).append('\n');
+
+        sb.append("for f in *.ts *.tmp; do\n");
+        sb.append("  [ -e \"$f\" ] || continue\n");
+        sb.append("  grep -qxF \"file '$f'\" list.txt || rm -f \"$f\"\n");
+        sb.append("done\n");
+        sb.append("cd ..\n");
+        sb.append("for d in *; do\n");
+        sb.append("  [ \"$d\" = ").append(shellQuote(cacheName)).append(" ] || rm -rf \"$d\"\n");
+        sb.append("done\n");
+        return sb.toString();
+    }
+
+    // 重新编码的片段要和复制的片段能直接拼接，只支持有对应编码器的格式，像素格式保持一致
+    private static String smartCutEncoder(String codec, String pixFmt, EncodeProfile profile) {
+        // 硬件编码器只接受 8 位 4:2:0，其他像素格式仍用软件编码保证能和复制的部分拼接
+        if (profile != null && profile.isHardware() && profile.getCodec().equals(codec) && "yuv420p".equals(pixFmt)) {
+            return profile.videoArgs();
         }
-        
-        Matcher progressMatcher = PROGRESS_PATTERN.matcher(line);
-        if (progressMatcher.find()) {
-            return Integer.parseInt(progressMatcher.group(1));
+        String pix = pixFmt != null ? " -pix_fmt " + pixFmt : "";
+        if ("h264".equals(codec)) {
+            return "-c:v libx264 -preset veryfast -crf 18" + pix;
         }
-        
-        if (line.contains("%")) {
-            String[] parts = line.split("%");
-            for (String part : parts) {
-                if (part.contains("|")) {
-                    String numStr = part.replaceAll("[^0-9]", "").trim();
-                    if (!numStr.isEmpty()) {
-                        try {
-                            return Integer.parseInt(numStr);
-                        } catch (NumberFormatException ignored) {}
-                    }
-                }
+        if ("hevc".equals(codec)) {
+            return "-c:v libx265 -preset veryfast -crf 20 -x265-params log-level=error" + pix;
+        }
+        return null;
+    }
+
+    // ffprobe -of default=nw=1 的 key=value 输出
+    private static String probeField(String output, String key) {
+        for (String line : output.split("\n")) {
+            line = line.trim();
+            if (line.startsWith(key + "=")) {
+                return line.substring(key.length() + 1);
             }
         }
-        
-        return lastProgress;
+        return null;
     }
 
-    private int parseCutProgress(String line, int lastProgress) {
-        if (line == null) return lastProgress;
-        
-        Matcher frameMatcher = FRAME_PATTERN.matcher(line);
-        if (frameMatcher.find()) {
-            return Math.min(lastProgress + 3, 95);
+    private static String shellQuote(String value) {
+        return "'" + value.replace("'", "'\\''") + "'";
+    }
+
+    private RemoteJob newJob() {
+        return new RemoteJob(sshManager);
+    }
+
+    public SubtitleTrack parseMdFile(String mdContent) {
+        SubtitleTrack track = new SubtitleTrack();
+        if (mdContent == null || mdContent.isEmpty()) {
+            return track;
         }
-        
-        Matcher timeMatcher = TIME_PATTERN.matcher(line);
-        if (timeMatcher.find()) {
-            return Math.min(lastProgress + 2, 95);
+
+        try {
+            new MdTranscriptParser(MD_BATCH_SIZE, MD_BATCH_SIZE)
+                    .parse(new StringReader(mdContent), track::addAll);
+        } catch (IOException ignored) {
+            // StringReader 不会抛出 IOException
         }
-        
-        if (line.contains("Encoding") || line.contains("编码")) {
-            return Math.min(lastProgress + 5, 90);
+        return track;
+    }
+
+    // 边下载边解析 md 文件，每解析出一批条目就回调一次；Future 的结果是条目总数
+    public CompletableFuture<Integer> loadMdFile(String mdPath, MdTranscriptParser.BatchListener listener) {
+        MdTranscriptParser parser = new MdTranscriptParser(MD_FIRST_BATCH_SIZE, MD_BATCH_SIZE);
+        return sshManager.streamRemoteFile(mdPath,
+                in -> parser.parse(new InputStreamReader(in, StandardCharsets.UTF_8), listener));
+    }
+
+    // 读取本地 md，回调方式与 loadMdFile 相同
+    public CompletableFuture<Integer> loadLocalMdFile(File mdFile, MdTranscriptParser.BatchListener listener) {
+        MdTranscriptParser parser = new MdTranscriptParser(MD_FIRST_BATCH_SIZE, MD_BATCH_SIZE);
+        return CompletableFuture.supplyAsync(() -> {
+            try (InputStreamReader reader = new InputStreamReader(new FileInputStream(mdFile), StandardCharsets.UTF_8)) {
+                return parser.parse(reader, listener);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, localExecutor);
+    }
+
+    public String generateMdFile(SubtitleTrack track) {
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = track.nextKept(0); i >= 0; i = track.nextKept(i + 1)) {
+            SubtitleEntry.appendTimestamp(sb, track.getStartMs(i));
+            sb.append(" --> ");
+            SubtitleEntry.appendTimestamp(sb, track.getEndMs(i));
+            sb.append("\n");
+            track.appendContent(i, sb);
+            sb.append("\n\n");
         }
-        
-        return lastProgress;
+
+        return sb.toString();
     }
 }
@@ -0,0 +1,93 @@
+package com.example.playerdemo.data.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// 长视频分段转写的切分规划：从 ffmpeg silencedetect 的输出收集静音区间，
+// 在每个目标切点附近选最近的一段静音，从它的中点切开，尽量不把一句话切成两半
+class ChunkPlanner {
+    private static final String SILENCE_START = "silence_start:";
+    private static final String SILENCE_END = "silence_end:";
+
+    private final List<long[]> silences = new ArrayList<>();
+    private long pendingStart = -1;
+
+    // [silencedetect @ 0x55d0] silence_start: 12.345
+    // [silencedetect @ 0x55d0] silence_end: 13.2 | silence_duration: 0.855
+    // 返回 true 表示这一行是静音检测输出
+    synchronized boolean onLine(String line) {
+        if (line == null) return false;
+        int at = line.indexOf(SILENCE_START);
+        if (at >= 0) {
+            pendingStart = parseSeconds(line, at + SILENCE_START.length());
+            return true;
+        }
+        at = line.indexOf(SILENCE_END);
+        if (at >= 0) {
+            long end = parseSeconds(line, at + SILENCE_END.length());
+            if (pendingStart >= 0 && end > pendingStart) {
+                silences.add(new long[]{pendingStart, end});
+            }
+            pendingStart = -1;
+            return true;
+        }
+        return false;
+    }
+
+    // 返回各段的切点（毫秒，递增）。每段目标长度 targetMs，在目标点前后 slackMs 内找不到静音时直接在目标点切；
+    // 最后一段不足半个目标长度时并入前一段
+    synchronized long[] plan(long durationMs, long targetMs, long slackMs) {
+        List<Long> cuts = new ArrayList<>();
+        long previous = 0;
+        int from = 0;
+        while (previous + targetMs + targetMs / 2 < durationMs) {
+            long target = previous + targetMs;
+            long best = -1;
+            for (int i = from; i < silences.size(); i++) {
+                long[] silence = silences.get(i);
+                long mid = (silence[0] + silence[1]) / 2;
+                if (mid > target + slackMs) break;
+                if (mid < target - slackMs) {
+                    from = i + 1;
+                    continue;
+                }
+                if (best < 0 || Math.abs(mid - target) < Math.abs(best - target)) {
+                    best = mid;
+                }
+            }
+            previous = best >= 0 ? best : target;
+            cuts.add(previous);
+        }
+
+        long[] result = new long[cuts.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = cuts.get(i);
+        }
+        return result;
+    }
+
+    // ffmpeg -segment_times 的参数格式：逗号分隔的秒数
+    static String formatSegmentTimes(long[] cuts) {
+        StringBuilder sb = new StringBuilder();
+        for (long cut : cuts) {
+            if (sb.length() > 0) sb.append(',');
+            sb.append(String.format(Locale.US, "%.3f", cut / 1000.0));
+        }
+        return sb.toString();
+    }
+
+    private static long parseSeconds(String line, int at) {
+        while (at < line.length() && line.charAt(at) == ' ') at++;
+        int end = at;
+        while (end < line.length() && (Character.isDigit(line.charAt(end)) || line.charAt(end) == '.'
+                || line.charAt(end) == '-')) {
+            end++;
+        }
+        try {
+            return Math.max(0, (long) (Double.parseDouble(line.substring(at, end)) * 1000));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
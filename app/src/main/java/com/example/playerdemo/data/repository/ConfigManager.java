@@ -3,12 +3,17 @@ package com.example.playerdemo.data.repository;
 import android.content.Context;
 import android.content.SharedPreferences;
 
+import com.example.playerdemo.data.model.EncodeProfile;
 import com.example.playerdemo.data.model.WslConfig;
 import com.google.gson.Gson;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 public class ConfigManager {
     private static final String PREFS_NAME = "player_demo_prefs";
     private static final String KEY_WSL_CONFIG = "wsl_config";
+    private static final String KEY_ENCODE_CAPS_PREFIX = "encode_caps_";
     
     private static ConfigManager instance;
     private final SharedPreferences prefs;
@@ -38,6 +43,41 @@ public class ConfigManager {
         return cachedConfig;
     }
 
+    // 当前主机的编码能力，探测一次后按 host:port 缓存，未探测过返回 null
+    public Set<EncodeProfile> getEncodeCapabilities() {
+        String value = prefs.getString(encodeCapsKey(), null);
+        if (value == null) {
+            return null;
+        }
+        Set<EncodeProfile> profiles = EnumSet.noneOf(EncodeProfile.class);
+        for (String name : value.split(",")) {
+            try {
+                profiles.add(EncodeProfile.valueOf(name));
+            } catch (IllegalArgumentException ignored) {
+                // 旧版本保存的、已经删除的编码方式
+            }
+        }
+        return profiles;
+    }
+
+    public void saveEncodeCapabilities(Set<EncodeProfile> profiles) {
+        StringBuilder sb = new StringBuilder();
+        for (EncodeProfile profile : profiles) {
+            if (sb.length() > 0) sb.append(',');
+            sb.append(profile.name());
+        }
+        prefs.edit().putString(encodeCapsKey(), sb.toString()).apply();
+    }
+
+    // 主机更换了显卡或 ffmpeg 后重新探测
+    public void clearEncodeCapabilities() {
+        prefs.edit().remove(encodeCapsKey()).apply();
+    }
+
+    private String encodeCapsKey() {
+        return KEY_ENCODE_CAPS_PREFIX + cachedConfig.getWindowsHost() + ":" + cachedConfig.getSshPort();
+    }
+
     private void loadConfig() {
         String json = prefs.getString(KEY_WSL_CONFIG, null);
         if (json != null) {
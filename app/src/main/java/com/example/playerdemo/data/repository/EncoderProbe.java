@@ -0,0 +1,61 @@
+package com.example.playerdemo.data.repository;
+
+import com.example.playerdemo.data.model.EncodeProfile;
+
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+
+// 根据主机上几条命令的输出判断可用的编码方式：ffmpeg 编译进了哪些编码器，
+// NVENC 还要求有 NVIDIA 显卡（nvidia-smi 能列出 GPU），QSV 要求 WSL 里有 /dev/dri 渲染设备
+class EncoderProbe {
+    static final String ENCODERS_COMMAND = "ffmpeg -hide_banner -encoders";
+    static final String GPU_COMMAND = "nvidia-smi -L";
+    static final String DRI_COMMAND = "ls /dev/dri";
+
+    // 自动选择时的优先顺序
+    private static final EncodeProfile[] PREFERENCE = {
+            EncodeProfile.NVENC_H264, EncodeProfile.QSV_H264, EncodeProfile.SOFTWARE_X264
+    };
+
+    // 命令失败时对应参数传空字符串
+    static Set<EncodeProfile> parse(String encoders, String gpus, String dri) {
+        Set<EncodeProfile> result = EnumSet.of(EncodeProfile.COPY);
+        Set<String> names = encoderNames(encoders);
+        if (names.contains("libx264")) {
+            result.add(EncodeProfile.SOFTWARE_X264);
+        }
+        // nvidia-smi -L 每块显卡输出一行 "GPU 0: NVIDIA GeForce ..."
+        if (gpus != null && gpus.contains("GPU ")) {
+            if (names.contains("h264_nvenc")) result.add(EncodeProfile.NVENC_H264);
+            if (names.contains("hevc_nvenc")) result.add(EncodeProfile.NVENC_HEVC);
+        }
+        if (dri != null && dri.contains("renderD") && names.contains("h264_qsv")) {
+            result.add(EncodeProfile.QSV_H264);
+        }
+        return result;
+    }
+
+    // 返回 null 表示没有可用的 ffmpeg 编码器，交给 autocut 默认的方式处理
+    static EncodeProfile best(Set<EncodeProfile> available) {
+        for (EncodeProfile profile : PREFERENCE) {
+            if (available.contains(profile)) {
+                return profile;
+            }
+        }
+        return null;
+    }
+
+    // ffmpeg -encoders 的编码器行形如 " V....D libx264   libx264 H.264 / AVC ..."，第一列是 6 个字符的能力标记
+    private static Set<String> encoderNames(String output) {
+        Set<String> names = new HashSet<>();
+        if (output == null) return names;
+        for (String line : output.split("\n")) {
+            String[] tokens = line.trim().split("\\s+");
+            if (tokens.length >= 2 && tokens[0].length() == 6 && tokens[0].charAt(0) == 'V') {
+                names.add(tokens[1]);
+            }
+        }
+        return names;
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.playerdemo.data.repository;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.os.Build;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.MediaStore;
+import android.util.Size;
+
+import com.example.playerdemo.data.model.MediaInfo;
+import com.example.playerdemo.data.model.VideoFile;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// 本地视频索引：直接查询 MediaStore，覆盖所有目录，不再遍历文件系统。
+// Android 11 起按卷记录 MediaStore 的 generation，刷新时只取之后新增或修改的行，删除通过比对 _ID 得到；
+// 媒体库变化由 ContentObserver 通知。缩略图同样由 MediaStore 提供
+public class LocalVideoIndex {
+    private static final Uri COLLECTION = MediaStore.Video.Media.EXTERNAL_CONTENT_URI;
+    private static final String[] PROJECTION = {
+            MediaStore.Video.Media._ID,
+            MediaStore.Video.Media.DATA,
+            MediaStore.Video.Media.DISPLAY_NAME,
+            MediaStore.Video.Media.SIZE,
+            MediaStore.Video.Media.DURATION,
+            MediaStore.Video.Media.DATE_MODIFIED
+    };
+    // 拷贝文件时媒体库会连续变化多次，合并成一次通知
+    private static final long CHANGE_DEBOUNCE_MS = 500;
+    private static final int THUMB_WIDTH = 320;
+    private static final int THUMB_HEIGHT = 180;
+
+    public interface Listener {
+        void onChanged();
+    }
+
+    private static LocalVideoIndex instance;
+    private final Context context;
+    private final ContentResolver resolver;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Map<Long, VideoFile> videosById = new HashMap<>();
+    // 缩略图按路径查 _ID
+    private final Map<String, Long> idsByPath = new ConcurrentHashMap<>();
+    // 卷名 -> 上次刷新时的 generation；MediaStore 版本变化（数据库重建）后整体失效
+    private final Map<String, Long> generations = new HashMap<>();
+    private String mediaStoreVersion;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Runnable notifyChanged = () -> {
+        for (Listener listener : listeners) {
+            listener.onChanged();
+        }
+    };
+    private final ContentObserver observer = new ContentObserver(mainHandler) {
+        @Override
+        public void onChange(boolean selfChange) {
+            mainHandler.removeCallbacks(notifyChanged);
+            mainHandler.postDelayed(notifyChanged, CHANGE_DEBOUNCE_MS);
+        }
+    };
+
+    private LocalVideoIndex(Context context) {
+        this.context = context.getApplicationContext();
+        this.resolver = this.context.getContentResolver();
+    }
+
+    public static synchronized LocalVideoIndex getInstance(Context context) {
+        if (instance == null) {
+            instance = new LocalVideoIndex(context);
+        }
+        return instance;
+    }
+
+    // 有监听者时才注册 ContentObserver，回调在主线程
+    public synchronized void addListener(Listener listener) {
+        if (listeners.isEmpty()) {
+            resolver.registerContentObserver(COLLECTION, true, observer);
+        }
+        listeners.add(listener);
+    }
+
+    public synchronized void removeListener(Listener listener) {
+        listeners.remove(listener);
+        if (listeners.isEmpty()) {
+            resolver.unregisterContentObserver(observer);
+            mainHandler.removeCallbacks(notifyChanged);
+        }
+    }
+
+    // 返回按名称排序的全部本地视频；需要读取存储权限
+    public CompletableFuture<List<VideoFile>> refresh() {
+        return CompletableFuture.supplyAsync(this::refreshIndex, executor);
+    }
+
+    // 阻塞调用，在后台线程使用；不在索引中或读取失败时返回 null
+    public Bitmap loadThumbnail(VideoFile video, CancellationSignal signal) {
+        Long id = idsByPath.get(video.getPath());
+        if (id == null) {
+            return null;
+        }
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                Uri uri = ContentUris.withAppendedId(COLLECTION, id);
+                return resolver.loadThumbnail(uri, new Size(THUMB_WIDTH, THUMB_HEIGHT), signal);
+            }
+            return MediaStore.Video.Thumbnails.getThumbnail(resolver, id, MediaStore.Video.Thumbnails.MINI_KIND, null);
+        } catch (IOException | RuntimeException e) {
+            // 取消时抛出 OperationCanceledException
+            return null;
+        }
+    }
+
+    private List<VideoFile> refreshIndex() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                && !generations.isEmpty() && MediaStore.getVersion(context).equals(mediaStoreVersion)) {
+            refreshChanged();
+        } else {
+            refreshAll();
+        }
+        List<VideoFile> result = new ArrayList<>(videosById.values());
+        result.sort(VideoManager.BY_NAME);
+        return result;
+    }
+
+    private void refreshAll() {
+        videosById.clear();
+        idsByPath.clear();
+        generations.clear();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            // 先记下 generation 再查询，查询期间的变化下次刷新时会再取一遍
+            mediaStoreVersion = MediaStore.getVersion(context);
+            for (String volume : MediaStore.getExternalVolumeNames(context)) {
+                generations.put(volume, MediaStore.getGeneration(context, volume));
+            }
+        }
+        readRows(COLLECTION, null, null);
+    }
+
+    private void refreshChanged() {
+        for (String volume : MediaStore.getExternalVolumeNames(context)) {
+            long current = MediaStore.getGeneration(context, volume);
+            Long previous = generations.get(volume);
+            if (previous != null && previous == current) continue;
+            generations.put(volume, current);
+            if (previous == null) {
+                readRows(MediaStore.Video.Media.getContentUri(volume), null, null);
+            } else {
+                readRows(MediaStore.Video.Media.getContentUri(volume),
+                        MediaStore.MediaColumns.GENERATION_MODIFIED + " > ?", new String[]{String.valueOf(previous)});
+            }
+        }
+        removeDeleted();
+    }
+
+    // 删除不会留下 generation 记录，只查 _ID 一列比对
+    private void removeDeleted() {
+        Set<Long> present = new HashSet<>();
+        try (Cursor cursor = resolver.query(COLLECTION, new String[]{MediaStore.Video.Media._ID}, null, null, null)) {
+            if (cursor == null) return;
+            if (cursor.getCount() == videosById.size()) return;
+            while (cursor.moveToNext()) {
+                present.add(cursor.getLong(0));
+            }
+        }
+        videosById.entrySet().removeIf(entry -> {
+            if (present.contains(entry.getKey())) return false;
+            idsByPath.remove(entry.getValue().getPath());
+            return true;
+        });
+    }
+
+    private void readRows(Uri uri, String selection, String[] selectionArgs) {
+        try (Cursor cursor = resolver.query(uri, PROJECTION, selection, selectionArgs, null)) {
+            if (cursor == null) return;
+            int idColumn = cursor.getColumnIndexOrThrow(MediaStore.Video.Media._ID);
+            int dataColumn = cursor.getColumnIndexOrThrow(MediaStore.Video.Media.DATA);
+            int nameColumn = cursor.getColumnIndexOrThrow(MediaStore.Video.Media.DISPLAY_NAME);
+            int sizeColumn = cursor.getColumnIndexOrThrow(MediaStore.Video.Media.SIZE);
+            int durationColumn = cursor.getColumnIndexOrThrow(MediaStore.Video.Media.DURATION);
+            int modifiedColumn = cursor.getColumnIndexOrThrow(MediaStore.Video.Media.DATE_MODIFIED);
+            while (cursor.moveToNext()) {
+                String path = cursor.getString(dataColumn);
+                if (path == null) continue;
+                long id = cursor.getLong(idColumn);
+                String name = cursor.getString(nameColumn);
+                long durationMs = cursor.isNull(durationColumn) ? -1 : cursor.getLong(durationColumn);
+                VideoFile video = new VideoFile(
+                        name != null ? name : path.substring(path.lastIndexOf('/') + 1),
+                        path,
+                        cursor.getLong(sizeColumn),
+                        MediaInfo.formatDuration(durationMs),
+                        false,
+                        // DATE_MODIFIED 以秒为单位
+                        cursor.getLong(modifiedColumn) * 1000
+                );
+                VideoFile previous = videosById.put(id, video);
+                if (previous != null && !previous.getPath().equals(path)) {
+                    idsByPath.remove(previous.getPath());
+                }
+                idsByPath.put(path, id);
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.playerdemo.data.repository;
+
+import com.example.playerdemo.data.model.SubtitleEntry;
+import com.example.playerdemo.data.model.SubtitleTrack;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+// 单遍流式解析 autocut 的 md 字幕：按行读取，空行分隔条目，每批结果是一段独立的 SubtitleTrack，
+// "HH:MM:SS.mmm --> HH:MM:SS.mmm" 手工解析成毫秒，不做整文件 split 和正则替换
+public class MdTranscriptParser {
+    private static final String ARROW = "-->";
+    private static final int TIMESTAMP_LENGTH = SubtitleEntry.TIMESTAMP_LENGTH;
+
+    public interface BatchListener {
+        void onBatch(SubtitleTrack batch);
+    }
+
+    private final int firstBatchSize;
+    private final int batchSize;
+
+    // 第一批尽量小，让编辑器尽快显示第一屏，之后按大批次推送减少 UI 刷新次数
+    public MdTranscriptParser(int firstBatchSize, int batchSize) {
+        this.firstBatchSize = Math.max(1, firstBatchSize);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    public int parse(Reader source, BatchListener listener) throws IOException {
+        BufferedReader reader = source instanceof BufferedReader
+                ? (BufferedReader) source
+                : new BufferedReader(source, 64 * 1024);
+
+        SubtitleTrack batch = new SubtitleTrack(firstBatchSize);
+        int limit = firstBatchSize;
+        int index = 0;
+
+        StringBuilder content = new StringBuilder();
+        long[] range = new long[3];
+        long startMs = -1;
+        long endMs = -1;
+
+        String line;
+        while (true) {
+            line = reader.readLine();
+            boolean blockEnd = line == null || isBlank(line);
+
+            if (!blockEnd) {
+                if (startMs < 0 && findTimeRange(line, 0, range) >= 0) {
+                    startMs = range[0];
+                    endMs = range[1];
+                }
+                appendWithoutRanges(content, line, range);
+                continue;
+            }
+
+            if (startMs >= 0) {
+                int from = 0;
+                int to = content.length();
+                while (from < to && content.charAt(from) <= ' ') from++;
+                while (to > from && content.charAt(to - 1) <= ' ') to--;
+                batch.add(startMs, endMs, content, from, to, true);
+                index++;
+                if (batch.size() >= limit) {
+                    listener.onBatch(batch);
+                    batch = new SubtitleTrack(batchSize);
+                    limit = batchSize;
+                }
+            }
+            content.setLength(0);
+            startMs = -1;
+            endMs = -1;
+
+            if (line == null) {
+                break;
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            listener.onBatch(batch);
+        }
+        return index;
+    }
+
+    // 从 from 开始找第一个时间区间，成功时把起止毫秒写入 out[0..1]、区间结束下标写入 out[2]，
+    // 返回区间起始下标；找不到返回 -1
+    static int findTimeRange(String line, int from, long[] out) {
+        int arrow = line.indexOf(ARROW, from);
+        while (arrow >= 0) {
+            int left = arrow;
+            while (left > from && isSpace(line.charAt(left - 1))) left--;
+            int right = arrow + ARROW.length();
+            while (right < line.length() && isSpace(line.charAt(right))) right++;
+
+            int start = left - TIMESTAMP_LENGTH;
+            if (start >= from && right + TIMESTAMP_LENGTH <= line.length()) {
+                long startMs = SubtitleEntry.parseTimestamp(line, start);
+                long endMs = SubtitleEntry.parseTimestamp(line, right);
+                if (startMs >= 0 && endMs >= 0) {
+                    out[0] = startMs;
+                    out[1] = endMs;
+                    out[2] = right + TIMESTAMP_LENGTH;
+                    return start;
+                }
+            }
+            arrow = line.indexOf(ARROW, arrow + ARROW.length());
+        }
+        return -1;
+    }
+
+    // 与旧实现一致：去掉行内所有时间区间，其余文字原样保留
+    private static void appendWithoutRanges(StringBuilder content, String line, long[] scratch) {
+        if (content.length() > 0) {
+            content.append('\n');
+        }
+        int from = 0;
+        int rangeStart;
+        while ((rangeStart = findTimeRange(line, from, scratch)) >= 0) {
+            content.append(line, from, rangeStart);
+            from = (int) scratch[2];
+        }
+        content.append(line, from, line.length());
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t';
+    }
+
+    private static boolean isBlank(String line) {
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) > ' ') return false;
+        }
+        return true;
+    }
+}
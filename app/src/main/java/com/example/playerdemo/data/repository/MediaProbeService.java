@@ -0,0 +1,268 @@
+package com.example.playerdemo.data.repository;
+
+import android.content.Context;
+
+import com.example.playerdemo.data.model.MediaInfo;
+import com.example.playerdemo.data.model.VideoFile;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+// 视频时长、分辨率、编码、码率。远程视频整个列表只用一次 exec：脚本逐个 ffprobe，
+// 把结果拼成一个 JSON 数组输出，这边流式解析一遍。本地视频的时长由 MediaStore 提供（见 LocalVideoIndex），不经过这里。
+// 结果按路径缓存到磁盘，文件大小或修改时间变化后重新探测
+public class MediaProbeService {
+    private static final String FILE_NAME = "media_info.json";
+    private static final String PROBE_ARGS =
+            "-v error -select_streams v:0 -show_entries format=duration,bit_rate:stream=codec_name,width,height -of json";
+
+    private static MediaProbeService instance;
+    private final File cacheFile;
+    private final Gson gson = new Gson();
+    private final Map<String, MediaInfo> infos = new ConcurrentHashMap<>();
+    // 正在探测的路径 -> 所在批次，列表刷新时不重复提交，后来的调用等同一批结果
+    private final Map<String, CompletableFuture<Void>> probing = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final SshManager sshManager = SshManager.getInstance();
+    private final CompletableFuture<Void> loaded;
+
+    // ffprobe -of json 输出中用到的字段
+    private static class ProbeEntry {
+        int index;
+        ProbeOutput probe;
+    }
+
+    private static class ProbeOutput {
+        List<ProbeStream> streams;
+        ProbeFormat format;
+    }
+
+    private static class ProbeStream {
+        String codec_name;
+        int width;
+        int height;
+    }
+
+    private static class ProbeFormat {
+        String duration;
+        String bit_rate;
+    }
+
+    private MediaProbeService(Context context) {
+        cacheFile = new File(context.getApplicationContext().getCacheDir(), FILE_NAME);
+        loaded = CompletableFuture.runAsync(this::loadFromDisk, executor);
+    }
+
+    public static synchronized MediaProbeService getInstance(Context context) {
+        if (instance == null) {
+            instance = new MediaProbeService(context);
+        }
+        return instance;
+    }
+
+    // 不需要 Context 的查询，供 AutoCutManager 省掉一次 ffprobe；服务还没创建或没有缓存时返回 null
+    static MediaInfo peek(String path) {
+        MediaProbeService service;
+        synchronized (MediaProbeService.class) {
+            service = instance;
+        }
+        return service != null ? service.getCached(path) : null;
+    }
+
+    // 只有路径时（识别、剪辑界面）按路径查最近一次探测的结果，没有时返回 null
+    public MediaInfo getCached(String path) {
+        return infos.get(path);
+    }
+
+    // 缓存中仍然有效的媒体信息，没有时返回 null
+    public MediaInfo getCached(VideoFile video) {
+        MediaInfo info = infos.get(video.getPath());
+        return info != null && info.matches(video) ? info : null;
+    }
+
+    // 立即返回用缓存填好时长的列表副本；缺少信息的视频在后台批量探测，时长有变化时用新的副本回调 onUpdated（后台线程）。
+    // 返回副本而不是修改原对象，ListAdapter 才能比较出变化的行。
+    // 已经在探测的视频不重复提交，这次调用的 onUpdated 等那一批结束后再比较
+    public List<VideoFile> fill(List<VideoFile> videos, Consumer<List<VideoFile>> onUpdated) {
+        List<VideoFile> filled = withDurations(videos);
+        // 磁盘缓存读完之后再决定哪些需要探测；只在 executor 上登记，同一路径只有一个探测中的 Future
+        loaded.thenRunAsync(() -> {
+            List<CompletableFuture<Void>> waits = new ArrayList<>();
+            List<VideoFile> remote = new ArrayList<>();
+            for (VideoFile video : videos) {
+                if (!video.isRemote() || getCached(video) != null) continue;
+                CompletableFuture<Void> running = probing.get(video.getPath());
+                if (running != null) {
+                    waits.add(running);
+                } else {
+                    remote.add(video);
+                }
+            }
+            if (!remote.isEmpty()) {
+                CompletableFuture<Void> batch = new CompletableFuture<>();
+                for (VideoFile video : remote) {
+                    probing.put(video.getPath(), batch);
+                }
+                waits.add(batch);
+                probeRemote(remote).whenComplete((ignored, error) -> executor.execute(() -> {
+                    for (VideoFile video : remote) probing.remove(video.getPath(), batch);
+                    saveToDisk();
+                    batch.complete(null);
+                }));
+            }
+            CompletableFuture.allOf(waits.toArray(new CompletableFuture[0]))
+                    .whenComplete((ignored, error) -> notifyIfChanged(filled, onUpdated));
+        }, executor);
+        return filled;
+    }
+
+    private void notifyIfChanged(List<VideoFile> shown, Consumer<List<VideoFile>> onUpdated) {
+        if (onUpdated == null) return;
+        List<VideoFile> updated = withDurations(shown);
+        for (int i = 0; i < shown.size(); i++) {
+            if (!Objects.equals(shown.get(i).getDuration(), updated.get(i).getDuration())) {
+                onUpdated.accept(updated);
+                return;
+            }
+        }
+    }
+
+    // 只用缓存填时长、不触发探测的副本，供目录还没列完时的部分列表使用
+    public List<VideoFile> withDurations(List<VideoFile> videos) {
+        List<VideoFile> result = new ArrayList<>(videos.size());
+        for (VideoFile video : videos) {
+            MediaInfo info = getCached(video);
+            VideoFile copy = new VideoFile(video.getName(), video.getPath(), video.getSize(),
+                    info != null ? info.getFormattedDuration() : video.getDuration(),
+                    video.isRemote(), video.getLastModified());
+            copy.setSelected(video.isSelected());
+            copy.setFolder(video.getFolder());
+            result.add(copy);
+        }
+        return result;
+    }
+
+    // 脚本放在第一个视频的目录里，执行完自己删除；单个文件探测失败输出 {}，不影响整个数组
+    private CompletableFuture<Void> probeRemote(List<VideoFile> videos) {
+        StringBuilder script = new StringBuilder();
+        script.append("sep=''\n");
+        script.append("p() {\n");
+        script.append("  out=$(ffprobe ").append(PROBE_ARGS).append(" \"$1\" 2>/dev/null) || out=''\n");
+        script.append("  [ -n \"$out\" ] || out='{}'\n");
+        script.append("  printf '%s{\"index\":%s,\"probe\":%s}\\n' \"$sep\" \"$2\" \"$out\"\n");
+        script.append("  sep=','\n");
+        script.append("}\n");
+        script.append("echo '['\n");
+        for (int i = 0; i < videos.size(); i++) {
+            script.append("p ").append(shellQuote(VideoManager.convertToWslPath(videos.get(i).getPath())))
+                    .append(' ').append(i).append('\n');
+        }
+        script.append("echo ']'\n");
+
+        String firstPath = videos.get(0).getPath();
+        String scriptPath = firstPath.substring(0, firstPath.lastIndexOf('/'))
+                + "/.autocut_probe_" + Long.toHexString(System.nanoTime()) + ".sh";
+        String wslScript = VideoManager.convertToWslPath(scriptPath);
+        script.append("rm -f ").append(shellQuote(wslScript)).append('\n');
+
+        return sshManager.uploadContent(script.toString(), scriptPath, null)
+                .thenCompose(ignored -> sshManager.executeForOutputAsync("wsl -d Ubuntu2204 sh \"" + wslScript + "\""))
+                .thenAccept(output -> parseProbeOutput(output, videos));
+    }
+
+    private void parseProbeOutput(String output, List<VideoFile> videos) {
+        int start = output.indexOf('[');
+        if (start < 0) return;
+        try (JsonReader reader = new JsonReader(new StringReader(output.substring(start)))) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                ProbeEntry entry = gson.fromJson(reader, ProbeEntry.class);
+                if (entry == null || entry.index < 0 || entry.index >= videos.size() || entry.probe == null) continue;
+                VideoFile video = videos.get(entry.index);
+                MediaInfo info = new MediaInfo(video.getPath(), video.getSize(), video.getLastModified());
+                if (entry.probe.format != null) {
+                    info.setDurationMs(parseMs(entry.probe.format.duration));
+                    info.setBitRate(parseLong(entry.probe.format.bit_rate));
+                }
+                if (entry.probe.streams != null && !entry.probe.streams.isEmpty()) {
+                    ProbeStream stream = entry.probe.streams.get(0);
+                    info.setVideoCodec(stream.codec_name);
+                    info.setWidth(stream.width);
+                    info.setHeight(stream.height);
+                }
+                infos.put(video.getPath(), info);
+            }
+            reader.endArray();
+        } catch (Exception e) {
+            // 输出被截断时保留已经解析出的条目
+        }
+    }
+
+    private void loadFromDisk() {
+        if (!cacheFile.exists()) return;
+        Type type = new TypeToken<Map<String, MediaInfo>>() {}.getType();
+        try (Reader reader = new InputStreamReader(new FileInputStream(cacheFile), StandardCharsets.UTF_8)) {
+            Map<String, MediaInfo> saved = gson.fromJson(reader, type);
+            if (saved != null) {
+                // 启动后已经探测到的结果更新，不覆盖
+                saved.forEach(infos::putIfAbsent);
+            }
+        } catch (Exception e) {
+            cacheFile.delete();
+        }
+    }
+
+    private void saveToDisk() {
+        File tmp = new File(cacheFile.getPath() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+            gson.toJson(new HashMap<>(infos), writer);
+        } catch (Exception e) {
+            tmp.delete();
+            return;
+        }
+        tmp.renameTo(cacheFile);
+    }
+
+    private static long parseMs(String seconds) {
+        if (seconds == null) return -1;
+        try {
+            return (long) (Double.parseDouble(seconds) * 1000);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long parseLong(String value) {
+        if (value == null) return 0;
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static String shellQuote(String value) {
+        return "'" + value.replace("'", "'\\''") + "'";
+    }
+}
@@ -0,0 +1,312 @@
+package com.example.playerdemo.data.repository;
+
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// 把 autocut / ffmpeg / whisper 的输出解析成单调递增的 0-100% 进度，附带剩余时间和处理速度（相对实时的倍数）。
+// 支持三种格式：ffmpeg -progress 的 key=value 行、ffmpeg 统计行里的 time= / speed=、tqdm 进度条。
+// 回调按固定频率合并，输出再多也只会以 intervalMs 为间隔通知一次
+public class ProgressTracker {
+    private static final ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "progress-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public interface Listener {
+        void onProgress(Snapshot snapshot);
+    }
+
+    public static class Snapshot {
+        private final int percent;
+        private final long etaMs;
+        private final double speed;
+        private final String stage;
+
+        Snapshot(int percent, long etaMs, double speed, String stage) {
+            this.percent = percent;
+            this.etaMs = etaMs;
+            this.speed = speed;
+            this.stage = stage;
+        }
+
+        public int getPercent() { return percent; }
+        // 未知时为 -1
+        public long getEtaMs() { return etaMs; }
+        // 处理速度是实时播放的多少倍，未知时为 0
+        public double getSpeed() { return speed; }
+        public String getStage() { return stage; }
+
+        public String describe() {
+            StringBuilder sb = new StringBuilder();
+            if (stage != null) {
+                sb.append(stage).append("  ");
+            }
+            sb.append(percent).append('%');
+            if (etaMs >= 0) {
+                long seconds = etaMs / 1000;
+                sb.append("  剩余 ").append(String.format(Locale.US, "%02d:%02d", seconds / 60, seconds % 60));
+            }
+            if (speed > 0) {
+                sb.append("  ").append(String.format(Locale.US, "%.1fx", speed));
+            }
+            return sb.toString();
+        }
+    }
+
+    private final Listener listener;
+    private final long intervalMs;
+    private long durationMs = -1;
+
+    private double fraction;
+    private long mediaMs = -1;
+    private double reportedSpeed;
+    private String stage;
+    private long startedAt = -1;
+    private long lastEmitAt;
+    private int lastEmittedPercent = -1;
+    private boolean flushScheduled;
+    private boolean finished;
+
+    public ProgressTracker(long intervalMs, Listener listener) {
+        this.intervalMs = intervalMs;
+        this.listener = listener;
+    }
+
+    // 媒体总时长，通常由 ffprobe 异步探测得到，到达前只能依据 tqdm 的比例
+    public synchronized void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    // 阶段关键字可能每行都出现，只有阶段真正切换时才立即通知，其余交给固定频率合并
+    public synchronized void setStage(String stage) {
+        if (finished || Objects.equals(this.stage, stage)) {
+            return;
+        }
+        this.stage = stage;
+        publish(true);
+    }
+
+    // 返回 true 表示这一行是进度信息，调用方不必再当作日志显示
+    public synchronized boolean onLine(String line) {
+        if (line == null || finished) {
+            return false;
+        }
+        boolean consumed = parseKeyValue(line) || parseFfmpegStats(line) || parseTqdm(line);
+        if (consumed) {
+            publish(false);
+        }
+        return consumed;
+    }
+
+    public synchronized void finish(boolean success) {
+        if (finished) return;
+        if (success) {
+            fraction = 1;
+        }
+        publish(true);
+        finished = true;
+    }
+
+    // ffmpeg -progress pipe:1 输出，例如 out_time_us=12345678、speed=2.5x、progress=end
+    private boolean parseKeyValue(String line) {
+        int eq = line.indexOf('=');
+        if (eq <= 0 || line.indexOf(' ') >= 0) {
+            return false;
+        }
+        String key = line.substring(0, eq);
+        String value = line.substring(eq + 1);
+        switch (key) {
+            case "out_time_us":
+            case "out_time_ms": // ffmpeg 里这个字段实际也是微秒
+                long us = parseLong(value, 0, value.length());
+                if (us >= 0) updateMedia(us / 1000);
+                return true;
+            case "speed":
+                reportedSpeed = parseSpeed(value, 0);
+                return true;
+            case "progress":
+                if ("end".equals(value)) fraction = 1;
+                return true;
+            case "frame": case "fps": case "bitrate": case "total_size": case "out_time":
+            case "dup_frames": case "drop_frames": case "stream_0_0_q":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // frame=  123 fps= 30 ... time=00:01:02.50 bitrate=... speed=2.1x
+    private boolean parseFfmpegStats(String line) {
+        int at = line.indexOf("time=");
+        if (at < 0) {
+            return false;
+        }
+        long ms = parseClock(line, at + 5);
+        if (ms < 0) {
+            return false;
+        }
+        updateMedia(ms);
+        int speedAt = line.indexOf("speed=", at);
+        if (speedAt >= 0) {
+            reportedSpeed = parseSpeed(line, speedAt + 6);
+        }
+        return true;
+    }
+
+    //  45%|████▌     | 1234/2742 [00:10<00:12, 120.5frames/s]
+    private boolean parseTqdm(String line) {
+        int bar = line.indexOf("%|");
+        if (bar <= 0) {
+            return false;
+        }
+        int start = bar;
+        while (start > 0 && Character.isDigit(line.charAt(start - 1))) start--;
+        if (start == bar) {
+            return false;
+        }
+        double value = parseLong(line, start, bar) / 100.0;
+
+        // 优先用 n/total 得到更精确的比例
+        int close = line.indexOf('|', bar + 2);
+        if (close > 0) {
+            int slash = line.indexOf('/', close);
+            int end = line.indexOf(' ', close + 2);
+            if (slash > 0 && end > slash) {
+                long n = parseLong(line, skipSpaces(line, close + 1), slash);
+                long total = parseLong(line, slash + 1, end);
+                if (n >= 0 && total > 0) {
+                    value = (double) n / total;
+                    // whisper 的 tqdm 以 mel 帧为单位，每帧 10ms，可直接换算成媒体时间
+                    if (line.contains("frames")) {
+                        mediaMs = Math.max(mediaMs, n * 10);
+                    }
+                }
+            }
+        }
+        fraction = Math.max(fraction, Math.min(1, value));
+        markStarted();
+        return true;
+    }
+
+    private void updateMedia(long ms) {
+        mediaMs = Math.max(mediaMs, ms);
+        if (durationMs > 0) {
+            fraction = Math.max(fraction, Math.min(1, (double) mediaMs / durationMs));
+        }
+        markStarted();
+    }
+
+    private void markStarted() {
+        if (startedAt < 0) {
+            startedAt = System.currentTimeMillis();
+        }
+    }
+
+    private void publish(boolean force) {
+        long now = System.currentTimeMillis();
+        long wait = intervalMs - (now - lastEmitAt);
+        if (!force && wait > 0) {
+            if (!flushScheduled) {
+                flushScheduled = true;
+                FLUSHER.schedule(this::flush, wait, TimeUnit.MILLISECONDS);
+            }
+            return;
+        }
+        Snapshot snapshot = snapshot(now);
+        // 百分比、阶段都没变化时不打扰界面
+        if (!force && snapshot.percent == lastEmittedPercent) {
+            return;
+        }
+        lastEmitAt = now;
+        lastEmittedPercent = snapshot.percent;
+        listener.onProgress(snapshot);
+    }
+
+    private synchronized void flush() {
+        flushScheduled = false;
+        if (!finished) {
+            publish(true);
+        }
+    }
+
+    private Snapshot snapshot(long now) {
+        int percent = (int) Math.round(fraction * 100);
+        if (lastEmittedPercent > percent) {
+            percent = lastEmittedPercent;
+        }
+
+        long etaMs = -1;
+        double speed = reportedSpeed;
+        long elapsed = startedAt >= 0 ? now - startedAt : 0;
+        if (elapsed > 1000 && fraction > 0.01 && fraction < 1) {
+            etaMs = (long) (elapsed * (1 - fraction) / fraction);
+        }
+        if (speed <= 0 && elapsed > 1000) {
+            long processed = mediaMs >= 0 ? mediaMs : durationMs > 0 ? (long) (fraction * durationMs) : -1;
+            if (processed > 0) {
+                speed = (double) processed / elapsed;
+            }
+        }
+        return new Snapshot(percent, etaMs, speed, stage);
+    }
+
+    // 解析 HH:MM:SS 或 HH:MM:SS.xx，失败返回 -1
+    static long parseClock(String s, int at) {
+        long total = 0;
+        int fields = 0;
+        int i = at;
+        while (fields < 3) {
+            int start = i;
+            while (i < s.length() && Character.isDigit(s.charAt(i))) i++;
+            if (i == start) return -1;
+            total = total * 60 + parseLong(s, start, i);
+            fields++;
+            if (fields < 3) {
+                if (i >= s.length() || s.charAt(i) != ':') return -1;
+                i++;
+            }
+        }
+        long ms = total * 1000;
+        if (i < s.length() && s.charAt(i) == '.') {
+            int start = ++i;
+            while (i < s.length() && Character.isDigit(s.charAt(i))) i++;
+            long scale = 100;
+            for (int j = start; j < i && scale > 0; j++, scale /= 10) {
+                ms += (s.charAt(j) - '0') * scale;
+            }
+        }
+        return ms;
+    }
+
+    private static double parseSpeed(String s, int at) {
+        at = skipSpaces(s, at);
+        int end = at;
+        while (end < s.length() && (Character.isDigit(s.charAt(end)) || s.charAt(end) == '.')) end++;
+        if (end == at) return 0;
+        try {
+            return Double.parseDouble(s.substring(at, end));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static long parseLong(String s, int from, int to) {
+        if (from >= to) return -1;
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static int skipSpaces(String s, int at) {
+        while (at < s.length() && s.charAt(at) == ' ') at++;
+        return at;
+    }
+}
@@ -0,0 +1,315 @@
+package com.example.playerdemo.data.repository;
+
+import android.content.Context;
+
+import com.example.playerdemo.data.model.RecognitionJob;
+import com.example.playerdemo.data.model.VideoFile;
+import com.example.playerdemo.data.model.WslConfig;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// 持久化的字幕识别队列：任务列表保存在 filesDir，进程被杀后重新打开应用会接着跑。
+// 待识别的视频按批交给一次 autocut 调用，同时运行的批次数受 WslConfig 限制。
+// 队列状态只在单线程 executor 上修改，监听器收到的是副本
+public class RecognitionQueue {
+    private static final String FILE_NAME = "recognition_queue.json";
+    private static final int MAX_ATTEMPTS = 3;
+
+    private static RecognitionQueue instance;
+    private final File file;
+    private final Gson gson = new Gson();
+    private final ConfigManager configManager;
+    private final SshManager sshManager;
+    private final AutoCutManager autoCutManager;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final List<RecognitionJob> jobs = new ArrayList<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private int runningBatches;
+    // 运行中的任务 id -> 所在批次的远程任务，同一批的任务共用一个
+    private final Map<String, RemoteJob> runningJobs = new HashMap<>();
+
+    public interface Listener {
+        void onQueueChanged(List<RecognitionJob> jobs);
+    }
+
+    private RecognitionQueue(Context context) {
+        file = new File(context.getApplicationContext().getFilesDir(), FILE_NAME);
+        configManager = ConfigManager.getInstance(context);
+        sshManager = SshManager.getInstance();
+        autoCutManager = AutoCutManager.getInstance();
+        executor.execute(this::load);
+    }
+
+    public static synchronized RecognitionQueue getInstance(Context context) {
+        if (instance == null) {
+            instance = new RecognitionQueue(context);
+        }
+        return instance;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+        executor.execute(() -> listener.onQueueChanged(snapshot()));
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // 已在队列中等待或运行的视频不会重复加入
+    public void enqueue(List<VideoFile> videos) {
+        List<VideoFile> copy = new ArrayList<>(videos);
+        executor.execute(() -> {
+            for (VideoFile video : copy) {
+                if (!video.isRemote() || findActive(video.getPath()) != null) continue;
+                jobs.add(new RecognitionJob(video.getPath(), video.getName(),
+                        AutoCutManager.mdPathFor(video.getPath())));
+            }
+            changed();
+            pump();
+        });
+    }
+
+    // 连接建立后调用，继续处理上次没跑完的任务
+    public void resume() {
+        executor.execute(this::pump);
+    }
+
+    public void retryFailed() {
+        executor.execute(() -> {
+            for (RecognitionJob job : jobs) {
+                if (job.getStatus() == RecognitionJob.Status.FAILED) {
+                    job.setStatus(RecognitionJob.Status.PENDING);
+                    job.setAttempts(0);
+                    job.setError(null);
+                }
+            }
+            changed();
+            pump();
+        });
+    }
+
+    // 移出队列：等待中的直接删除；运行中的结束所在批次的转写请求，让出显卡给下一批，
+    // 同批里还没完成的其他视频重新排队，这次不计入重试次数
+    public void cancel(String jobId) {
+        executor.execute(() -> {
+            RecognitionJob target = null;
+            for (RecognitionJob job : jobs) {
+                if (job.getId().equals(jobId)) {
+                    target = job;
+                    break;
+                }
+            }
+            if (target == null || !target.isActive()) return;
+            jobs.remove(target);
+            RemoteJob remoteJob = runningJobs.remove(jobId);
+            if (remoteJob != null) {
+                for (RecognitionJob job : jobs) {
+                    if (job.getStatus() == RecognitionJob.Status.RUNNING && runningJobs.get(job.getId()) == remoteJob) {
+                        runningJobs.remove(job.getId());
+                        job.setStatus(RecognitionJob.Status.PENDING);
+                        job.setAttempts(Math.max(0, job.getAttempts() - 1));
+                    }
+                }
+                remoteJob.cancel();
+            }
+            changed();
+        });
+    }
+
+    public void clearFinished() {
+        executor.execute(() -> {
+            jobs.removeIf(job -> !job.isActive());
+            changed();
+        });
+    }
+
+    private void pump() {
+        if (!sshManager.isConnected()) {
+            return;
+        }
+        WslConfig config = configManager.getWslConfig();
+        boolean started = false;
+        while (runningBatches < config.getRecognitionConcurrency()) {
+            List<RecognitionJob> batch = new ArrayList<>();
+            for (RecognitionJob job : jobs) {
+                if (job.getStatus() == RecognitionJob.Status.PENDING) {
+                    batch.add(job);
+                    if (batch.size() >= config.getRecognitionBatchSize()) break;
+                }
+            }
+            if (batch.isEmpty()) break;
+
+            long now = System.currentTimeMillis();
+            for (RecognitionJob job : batch) {
+                job.setStatus(RecognitionJob.Status.RUNNING);
+                job.setStartedAt(now);
+                job.setAttempts(job.getAttempts() + 1);
+                job.setError(null);
+            }
+            runningBatches++;
+            runBatch(batch);
+            started = true;
+        }
+        if (started) {
+            changed();
+        }
+    }
+
+    private void runBatch(List<RecognitionJob> batch) {
+        List<String> paths = new ArrayList<>(batch.size());
+        for (RecognitionJob job : batch) {
+            paths.add(job.getVideoPath());
+        }
+
+        // 回调都经过 executor，一定排在下面登记 runningJobs 之后
+        RemoteJob[] handle = new RemoteJob[1];
+        handle[0] = autoCutManager.recognizeBatch(paths, new AutoCutManager.BatchRecognitionCallback() {
+            @Override
+            public void onOutput(String line) {}
+
+            @Override
+            public void onFileDone(String videoPath) {
+                executor.execute(() -> {
+                    for (RecognitionJob job : batch) {
+                        if (job.getVideoPath().equals(videoPath)) {
+                            markDone(job);
+                        }
+                    }
+                    changed();
+                });
+            }
+
+            @Override
+            public void onComplete(int exitCode) {
+                executor.execute(() -> finishBatch(batch, handle[0], exitCode == 0 ? null : "autocut 退出码: " + exitCode));
+            }
+
+            @Override
+            public void onError(String error) {
+                executor.execute(() -> finishBatch(batch, handle[0], error != null ? error : "执行出错"));
+            }
+        });
+        for (RecognitionJob job : batch) {
+            runningJobs.put(job.getId(), handle[0]);
+        }
+    }
+
+    // 日志里没认出来的视频，以 md 文件是否存在为准；整批异常退出时，
+    // 排在出错视频后面、还没轮到的视频会重新排队
+    private void finishBatch(List<RecognitionJob> batch, RemoteJob remoteJob, String error) {
+        List<CompletableFuture<?>> checks = new ArrayList<>();
+        for (RecognitionJob job : batch) {
+            // 被取消后重新排队的视频可能已经在别的批次里运行
+            if (runningJobs.get(job.getId()) != remoteJob) continue;
+            runningJobs.remove(job.getId());
+            if (job.getStatus() != RecognitionJob.Status.RUNNING) continue;
+            checks.add(sshManager.statAsync(job.getMdPath()).handle((attrs, statError) -> {
+                // 整批退出码非零时已经写出 md 的视频仍算完成，error 只用于没有 md 时的说明
+                boolean produced = statError == null;
+                executor.execute(() -> resolve(job, produced, error));
+                return null;
+            }));
+        }
+        CompletableFuture.allOf(checks.toArray(new CompletableFuture[0]))
+                .whenComplete((ignored, e) -> executor.execute(() -> {
+                    runningBatches--;
+                    changed();
+                    pump();
+                }));
+    }
+
+    private void resolve(RecognitionJob job, boolean produced, String error) {
+        if (job.getStatus() != RecognitionJob.Status.RUNNING) return;
+        if (produced) {
+            markDone(job);
+        } else if (job.getAttempts() < MAX_ATTEMPTS) {
+            job.setStatus(RecognitionJob.Status.PENDING);
+            job.setError(error);
+        } else {
+            job.setStatus(RecognitionJob.Status.FAILED);
+            job.setError(error != null ? error : "未生成字幕文件");
+            job.setFinishedAt(System.currentTimeMillis());
+        }
+    }
+
+    private static void markDone(RecognitionJob job) {
+        job.setStatus(RecognitionJob.Status.DONE);
+        job.setError(null);
+        job.setFinishedAt(System.currentTimeMillis());
+    }
+
+    private RecognitionJob findActive(String videoPath) {
+        for (RecognitionJob job : jobs) {
+            if (job.isActive() && job.getVideoPath().equals(videoPath)) {
+                return job;
+            }
+        }
+        return null;
+    }
+
+    private List<RecognitionJob> snapshot() {
+        List<RecognitionJob> copy = new ArrayList<>(jobs.size());
+        for (RecognitionJob job : jobs) {
+            copy.add(job.copy());
+        }
+        return copy;
+    }
+
+    private void changed() {
+        save();
+        List<RecognitionJob> copy = snapshot();
+        for (Listener listener : listeners) {
+            listener.onQueueChanged(copy);
+        }
+    }
+
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+        Type type = new TypeToken<List<RecognitionJob>>() {}.getType();
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            List<RecognitionJob> saved = gson.fromJson(reader, type);
+            if (saved == null) return;
+            for (RecognitionJob job : saved) {
+                // 上次进程退出时还在运行的任务重新排队，autocut 会跳过已经生成 md 的视频
+                if (job.getStatus() == RecognitionJob.Status.RUNNING) {
+                    job.setStatus(RecognitionJob.Status.PENDING);
+                }
+                jobs.add(job);
+            }
+        } catch (Exception e) {
+            file.delete();
+        }
+    }
+
+    private void save() {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+            gson.toJson(jobs, writer);
+        } catch (Exception e) {
+            tmp.delete();
+            return;
+        }
+        tmp.renameTo(file);
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.playerdemo.data.repository;
+
+import android.content.Context;
+
+import com.example.playerdemo.data.model.VideoFile;
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// 远程视频目录的本地快照，按 主机 + 视频目录 区分，打开列表时先用它秒开，再后台校验
+public class RemoteCatalogCache {
+    private static final String DIR_NAME = "remote_catalog";
+
+    private static RemoteCatalogCache instance;
+    private final File cacheDir;
+    private final Gson gson = new Gson();
+
+    public static class Snapshot {
+        long dirMtime;
+        List<VideoFile> videos = new ArrayList<>();
+
+        public long getDirMtime() { return dirMtime; }
+        public List<VideoFile> getVideos() { return videos; }
+    }
+
+    public static class Delta {
+        private final List<VideoFile> added = new ArrayList<>();
+        private final List<VideoFile> removed = new ArrayList<>();
+        private final List<VideoFile> changed = new ArrayList<>();
+
+        public List<VideoFile> getAdded() { return added; }
+        public List<VideoFile> getRemoved() { return removed; }
+        public List<VideoFile> getChanged() { return changed; }
+
+        public boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+        }
+    }
+
+    private RemoteCatalogCache(Context context) {
+        cacheDir = new File(context.getApplicationContext().getCacheDir(), DIR_NAME);
+    }
+
+    public static synchronized RemoteCatalogCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new RemoteCatalogCache(context);
+        }
+        return instance;
+    }
+
+    public synchronized Snapshot load(String host, String videoPath) {
+        File file = fileFor(host, videoPath);
+        if (!file.exists()) {
+            return null;
+        }
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            return gson.fromJson(reader, Snapshot.class);
+        } catch (Exception e) {
+            file.delete();
+            return null;
+        }
+    }
+
+    public synchronized void save(String host, String videoPath, long dirMtime, List<VideoFile> videos) {
+        Snapshot snapshot = new Snapshot();
+        snapshot.dirMtime = dirMtime;
+        snapshot.videos = new ArrayList<>(videos);
+
+        File file = fileFor(host, videoPath);
+        File tmp = new File(file.getPath() + ".tmp");
+        cacheDir.mkdirs();
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+            gson.toJson(snapshot, writer);
+        } catch (Exception e) {
+            tmp.delete();
+            return;
+        }
+        tmp.renameTo(file);
+    }
+
+    // 以路径为键，对比大小和修改时间得出新增、删除、变化的条目
+    public static Delta diff(List<VideoFile> oldVideos, List<VideoFile> newVideos) {
+        Delta delta = new Delta();
+        Map<String, VideoFile> oldByPath = new HashMap<>();
+        for (VideoFile video : oldVideos) {
+            oldByPath.put(video.getPath(), video);
+        }
+
+        for (VideoFile video : newVideos) {
+            VideoFile old = oldByPath.remove(video.getPath());
+            if (old == null) {
+                delta.added.add(video);
+            } else if (old.getSize() != video.getSize() || old.getLastModified() != video.getLastModified()) {
+                delta.changed.add(video);
+            }
+        }
+        delta.removed.addAll(oldByPath.values());
+        return delta;
+    }
+
+    private File fileFor(String host, String videoPath) {
+        String key = host + "|" + videoPath;
+        return new File(cacheDir, UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)) + ".json");
+    }
+}
@@ -0,0 +1,283 @@
+package com.example.playerdemo.data.repository;
+
+import com.example.playerdemo.data.model.VideoFile;
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.SftpATTRS;
+import com.jcraft.jsch.SftpException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.regex.Pattern;
+
+// 递归列出视频目录。每个子目录一次 ls，最多 parallelism 个同时进行，各自从连接池租用 SFTP 通道；
+// 待列出的目录放在有上限的队列里，超出上限的目录跳过并记入 skippedDirs。
+// ls 是流式的：服务器返回的条目边到边过滤，每凑够 BATCH_SIZE 个视频就回调一次，
+// 几千个文件的目录不用等整个目录列完；找到 limit 个视频或遍历出错结束时正在进行的 ls 也随之停止
+public class RemoteDirectoryWalker {
+    // 防止误把盘符根目录设为视频目录时无限展开
+    private static final int MAX_PENDING_DIRS = 2000;
+    private static final int BATCH_SIZE = 32;
+
+    public static class Options {
+        final int maxDepth;
+        final List<Glob> include;
+        final List<Glob> exclude;
+        final int parallelism;
+        final int limit;
+        // 不同的层数和过滤规则得到不同的列表，目录快照按它分开缓存；只列根目录且不过滤时为 ""
+        final String signature;
+
+        // maxDepth 为 0 时只列根目录；include 为空表示全部视频，glob 不含 / 时只匹配文件名
+        public Options(int maxDepth, List<String> include, List<String> exclude, int parallelism) {
+            this(maxDepth, compile(include), compile(exclude), parallelism, 0);
+        }
+
+        private Options(int maxDepth, List<Glob> include, List<Glob> exclude, int parallelism, int limit) {
+            this.maxDepth = Math.max(0, maxDepth);
+            this.include = include;
+            this.exclude = exclude;
+            this.parallelism = Math.max(1, parallelism);
+            this.limit = Math.max(0, limit);
+            String filters = this.maxDepth == 0 && this.include.isEmpty() && this.exclude.isEmpty() ? ""
+                    : "d" + this.maxDepth + "|i:" + describe(this.include) + "|e:" + describe(this.exclude);
+            // 截断的列表和完整列表分开缓存
+            this.signature = this.limit > 0 ? filters + "|n" + this.limit : filters;
+        }
+
+        // 同样的层数和过滤规则，找到 limit 个视频就停止列出，用于只需要第一页的场景
+        public Options withLimit(int limit) {
+            return new Options(maxDepth, include, exclude, parallelism, limit);
+        }
+
+        // 设置里以逗号分隔保存的 glob 列表
+        public static List<String> splitGlobs(String globs) {
+            List<String> result = new ArrayList<>();
+            if (globs == null) return result;
+            for (String glob : globs.split(",")) {
+                if (!glob.trim().isEmpty()) result.add(glob.trim());
+            }
+            return result;
+        }
+
+        public static Options flat() {
+            return new Options(0, Collections.emptyList(), Collections.emptyList(), 1);
+        }
+
+        public boolean isRecursive() {
+            return maxDepth > 0;
+        }
+
+        public String getSignature() {
+            return signature;
+        }
+
+        private static String describe(List<Glob> globs) {
+            StringBuilder sb = new StringBuilder();
+            for (Glob glob : globs) {
+                if (sb.length() > 0) sb.append(',');
+                sb.append(glob.source);
+            }
+            return sb.toString();
+        }
+    }
+
+    private static class Glob {
+        final String source;
+        final Pattern pattern;
+        // 不含 / 的 glob 只匹配文件名或目录名
+        final boolean matchesPath;
+
+        Glob(String glob) {
+            source = glob;
+            pattern = Pattern.compile(globToRegex(glob), Pattern.CASE_INSENSITIVE);
+            matchesPath = glob.contains("/");
+        }
+    }
+
+    public interface Listener {
+        // 在 SSH 线程回调，同一目录可能分多批，folder 为相对根目录的路径，根目录为 ""
+        void onVideos(String folder, List<VideoFile> videos);
+    }
+
+    private final SshManager sshManager;
+    private final String root;
+    private final Options options;
+    private final Listener listener;
+    private final ArrayDeque<String[]> pending = new ArrayDeque<>();
+    private final CompletableFuture<Integer> done = new CompletableFuture<>();
+    private int inFlight;
+    private int skippedDirs;
+    private int foundVideos;
+    private volatile boolean cancelled;
+
+    RemoteDirectoryWalker(SshManager sshManager, String root, Options options, Listener listener) {
+        this.sshManager = sshManager;
+        this.root = root.endsWith("/") && root.length() > 1 ? root.substring(0, root.length() - 1) : root;
+        this.options = options;
+        this.listener = listener;
+    }
+
+    // 完成时返回因队列已满而跳过的目录数；连接出错时以该错误结束
+    CompletableFuture<Integer> start() {
+        synchronized (this) {
+            pending.add(new String[]{root, ""});
+        }
+        pump();
+        return done;
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    private void pump() {
+        List<String[]> toList = new ArrayList<>();
+        synchronized (this) {
+            while (inFlight < options.parallelism && !pending.isEmpty() && !cancelled) {
+                toList.add(pending.poll());
+                inFlight++;
+            }
+            if (inFlight == 0 && (pending.isEmpty() || cancelled)) {
+                done.complete(skippedDirs);
+                return;
+            }
+        }
+        for (String[] dir : toList) {
+            listDirectory(dir[0], dir[1]);
+        }
+    }
+
+    private void listDirectory(String dir, String folder) {
+        int depth = folder.isEmpty() ? 0 : folder.split("/").length;
+        List<VideoFile> batch = new ArrayList<>();
+        sshManager.listFilesStreaming(dir, entry -> {
+            if (cancelled) {
+                return ChannelSftp.LsEntrySelector.BREAK;
+            }
+            String name = entry.getFilename();
+            if (name.startsWith(".")) return ChannelSftp.LsEntrySelector.CONTINUE;
+            String relative = folder.isEmpty() ? name : folder + "/" + name;
+            if (matchesAny(options.exclude, relative, name)) return ChannelSftp.LsEntrySelector.CONTINUE;
+
+            SftpATTRS attrs = entry.getAttrs();
+            if (attrs.isDir()) {
+                if (depth < options.maxDepth) {
+                    // 子目录不等父目录列完就开始列
+                    enqueue(dir + "/" + name, relative);
+                    pump();
+                }
+            } else if (VideoManager.isVideoFile(name)
+                    && (options.include.isEmpty() || matchesAny(options.include, relative, name))) {
+                VideoFile video = new VideoFile(name, dir + "/" + name, attrs.getSize(), "", true, attrs.getMTime());
+                video.setFolder(folder);
+                batch.add(video);
+                if (shouldFlush(batch.size())) {
+                    flush(folder, batch);
+                }
+            }
+            return cancelled ? ChannelSftp.LsEntrySelector.BREAK : ChannelSftp.LsEntrySelector.CONTINUE;
+        }).whenComplete((ignored, error) -> onListed(folder, batch, error));
+    }
+
+    // 第一个视频立即交出，列表尽早有内容；之后凑够一批或达到 limit 时交出
+    private synchronized boolean shouldFlush(int batchSize) {
+        return batchSize >= BATCH_SIZE || foundVideos == 0
+                || (options.limit > 0 && foundVideos + batchSize >= options.limit);
+    }
+
+    // 交出一批视频；达到 limit 时截掉多余的并停止整个遍历，正在进行的 ls 由选择器返回 BREAK 结束
+    private void flush(String folder, List<VideoFile> batch) {
+        List<VideoFile> videos = new ArrayList<>(batch);
+        batch.clear();
+        synchronized (this) {
+            if (options.limit > 0) {
+                int remaining = options.limit - foundVideos;
+                if (remaining <= 0) return;
+                if (videos.size() >= remaining) {
+                    videos = videos.subList(0, remaining);
+                    cancelled = true;
+                }
+            }
+            foundVideos += videos.size();
+        }
+        listener.onVideos(folder, videos);
+    }
+
+    private void onListed(String folder, List<VideoFile> batch, Throwable error) {
+        // 连接层面的错误结束整个遍历；目录不存在、无权限等 SFTP 错误只跳过这个目录（根目录即为空列表）
+        if (error != null && !(unwrap(error) instanceof SftpException)) {
+            cancelled = true;
+            done.completeExceptionally(error);
+            return;
+        }
+        if (!batch.isEmpty()) {
+            flush(folder, batch);
+        }
+
+        synchronized (this) {
+            inFlight--;
+        }
+        pump();
+    }
+
+    private synchronized void enqueue(String path, String folder) {
+        if (pending.size() >= MAX_PENDING_DIRS) {
+            skippedDirs++;
+            return;
+        }
+        pending.add(new String[]{path, folder});
+    }
+
+    private static boolean matchesAny(List<Glob> globs, String relative, String name) {
+        for (Glob glob : globs) {
+            if (glob.pattern.matcher(glob.matchesPath ? relative : name).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<Glob> compile(List<String> globs) {
+        List<Glob> compiled = new ArrayList<>();
+        if (globs == null) return compiled;
+        for (String glob : globs) {
+            if (glob != null && !glob.trim().isEmpty()) {
+                compiled.add(new Glob(glob.trim()));
+            }
+        }
+        return compiled;
+    }
+
+    // ** 跨目录，* 和 ? 不跨目录，其余字符按字面匹配
+    static String globToRegex(String glob) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*') {
+                if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                    sb.append(".*");
+                    i++;
+                } else {
+                    sb.append("[^/]*");
+                }
+            } else if (c == '?') {
+                sb.append("[^/]");
+            } else {
+                sb.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.playerdemo.data.repository;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// 在 WSL 上运行的一个远程任务。命令用 setsid 放进独立的进程组，启动后先输出自己的 PGID；
+// 取消时只向这个进程组发信号并关闭对应的 exec 通道，不影响其他 autocut 进程。
+// 关闭 SSH 通道只会结束 Windows 侧的 wsl.exe，Linux 里的进程要靠信号才能结束，
+// 所以命令已经发出、PGID 还没读到时取消，要等读到 PGID 发完信号再关通道
+public class RemoteJob {
+    private static final String WSL_PREFIX = "wsl -d Ubuntu2204 ";
+    private static final String PGID_MARKER = "@@PGID ";
+    // TERM 之后留给 whisper 释放显存的时间，过后仍未退出就 KILL
+    private static final int KILL_GRACE_SECONDS = 2;
+    // 冷启动 WSL 时 PGID 行可能要几秒才到，超时后只能直接关闭通道
+    private static final long PGID_WAIT_MS = 15000;
+
+    private final SshManager sshManager;
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+    private final AtomicBoolean signalled = new AtomicBoolean(false);
+    private volatile long pgid = -1;
+    private final CompletableFuture<Long> pgidArrived = new CompletableFuture<>();
+    // 已经用 wrap 发出了远程命令
+    private volatile boolean launched;
+    private volatile Runnable closer;
+    // 由多个远程进程组成的任务（如分段并行转写），取消时一并取消
+    private final List<RemoteJob> children = new CopyOnWriteArrayList<>();
+
+    RemoteJob(SshManager sshManager) {
+        this.sshManager = sshManager;
+    }
+
+    // command 为 WSL 内执行的命令（不含 wsl 前缀），返回可直接交给 SshManager 的完整命令；
+    // 调用方必须用 consumeMarker 读取输出，直到 PGID 行出现
+    String wrap(String command) {
+        launched = true;
+        return WSL_PREFIX + "setsid -w sh -c 'echo " + PGID_MARKER + "$$; exec "
+                + command.replace("'", "'\\''") + "'";
+    }
+
+    // 识别命令输出的 PGID 行，返回 true 表示调用方应忽略这一行
+    boolean consumeMarker(String line) {
+        if (pgid > 0 || line == null || !line.startsWith(PGID_MARKER)) {
+            return false;
+        }
+        try {
+            pgid = Long.parseLong(line.substring(PGID_MARKER.length()).trim());
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        // 取消发生在 PGID 到达之前时，cancel 正在等它
+        pgidArrived.complete(pgid);
+        return true;
+    }
+
+    // closer 负责关闭任务占用的通道
+    void attach(Runnable closer) {
+        this.closer = closer;
+        if (cancelled.get()) {
+            stop();
+        }
+    }
+
+    RemoteJob newChild() {
+        RemoteJob child = new RemoteJob(sshManager);
+        children.add(child);
+        if (cancelled.get()) {
+            child.cancel();
+        }
+        return child;
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    public void cancel() {
+        if (!cancelled.compareAndSet(false, true)) {
+            return;
+        }
+        for (RemoteJob child : children) {
+            child.cancel();
+        }
+        stop();
+    }
+
+    // 先向进程组发信号再关闭通道；cancel 和之后的 attach 都可能调用，信号只发一次
+    private void stop() {
+        long group = pgid;
+        if (group > 0) {
+            signal(group).whenComplete((output, error) -> close());
+        } else if (launched) {
+            // 通道保持打开，读线程才能读到 PGID 行
+            sshManager.withTimeout(pgidArrived, PGID_WAIT_MS).whenComplete((arrived, error) -> {
+                if (error == null) {
+                    signal(arrived).whenComplete((output, signalError) -> close());
+                } else {
+                    close();
+                }
+            });
+        } else {
+            close();
+        }
+    }
+
+    private CompletableFuture<String> signal(long group) {
+        if (!signalled.compareAndSet(false, true)) {
+            return CompletableFuture.completedFuture("");
+        }
+        return sshManager.executeControlAsync(WSL_PREFIX + "kill -TERM -" + group
+                + "; sleep " + KILL_GRACE_SECONDS + "; kill -KILL -" + group);
+    }
+
+    private void close() {
+        Runnable current = closer;
+        if (current != null) {
+            current.run();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.playerdemo.data.repository;
+
+import com.jcraft.jsch.SftpATTRS;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 分段并行下载：把远程文件切成若干字节区间，每段用独立的 SFTP 通道做偏移读取，
+// 按位置直接写进预先分配好大小的本地文件。各分段的进度记在 TransferJournal 里，
+// 中断后再次下载同一个文件会跳过已经落盘的部分
+class SegmentedDownloader {
+    private static final int MAX_SEGMENTS = 4;
+    private static final long MIN_SEGMENT_SIZE = 8L * 1024 * 1024;
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final long COMMIT_INTERVAL_BYTES = 4L * 1024 * 1024;
+    private static final long REPORT_INTERVAL_MS = 500;
+
+    private final SshManager sshManager;
+    private final ExecutorService executor;
+    private final int maxSegments;
+
+    SegmentedDownloader(SshManager sshManager, ExecutorService executor, int maxChannels) {
+        this.sshManager = sshManager;
+        this.executor = executor;
+        // 留一个通道给列表、exec 等其他操作
+        this.maxSegments = Math.max(1, Math.min(MAX_SEGMENTS, maxChannels - 1));
+    }
+
+    void download(String remotePath, String localPath, boolean verifyChecksum,
+                  SshManager.ProgressCallback callback) throws Exception {
+        SftpATTRS attrs = sshManager.withSftp(channel -> channel.stat(remotePath));
+        long size = attrs.getSize();
+        int segmentCount = (int) Math.max(1, Math.min(maxSegments, size / MIN_SEGMENT_SIZE));
+
+        TransferJournal journal = TransferJournal.loadOrCreate(
+                localPath, remotePath, size, attrs.getMTime(), segmentCount);
+        long resumedBytes = journal.committedBytes();
+        if (resumedBytes > 0 && callback != null) {
+            callback.onProgress((int) (resumedBytes * 100 / size),
+                    "从断点继续下载，已完成 " + formatSize(resumedBytes));
+        }
+
+        ProgressReporter reporter = new ProgressReporter(size, resumedBytes, callback);
+        AtomicBoolean failed = new AtomicBoolean(false);
+
+        try (RandomAccessFile file = new RandomAccessFile(localPath, "rw")) {
+            if (file.length() != size) {
+                file.setLength(size);
+            }
+            journal.save();
+            FileChannel fileChannel = file.getChannel();
+
+            List<Future<?>> futures = new ArrayList<>();
+            for (TransferJournal.Segment segment : journal.getSegments()) {
+                if (segment.isDone()) continue;
+                futures.add(executor.submit(() -> {
+                    fetchSegment(remotePath, fileChannel, journal, segment, reporter, failed);
+                    return null;
+                }));
+            }
+
+            try {
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (ExecutionException e) {
+                cancelAll(futures, failed);
+                Throwable cause = e.getCause();
+                throw cause instanceof Exception ? (Exception) cause : e;
+            } catch (InterruptedException e) {
+                // 外层 Future 被取消或超时，停掉所有分段，已提交的进度保留在日志里
+                cancelAll(futures, failed);
+                throw e;
+            }
+        }
+
+        if (verifyChecksum) {
+            if (callback != null) {
+                callback.onProgress(100, "正在校验文件完整性...");
+            }
+            String remoteHash = remoteSha256(remotePath);
+            String localHash = localSha256(localPath);
+            if (!remoteHash.equalsIgnoreCase(localHash)) {
+                // 数据已不可信，丢掉日志，下次从头下载
+                journal.delete();
+                throw new IOException("SHA-256 校验失败，本地: " + localHash + "，远程: " + remoteHash);
+            }
+        }
+
+        journal.delete();
+        reporter.finish(verifyChecksum);
+    }
+
+    private static void cancelAll(List<Future<?>> futures, AtomicBoolean failed) {
+        failed.set(true);
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    private void fetchSegment(String remotePath, FileChannel fileChannel, TransferJournal journal,
+                              TransferJournal.Segment segment, ProgressReporter reporter,
+                              AtomicBoolean failed) throws Exception {
+        sshManager.withSftp(channel -> {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long position = segment.committed;
+            long uncommitted = 0;
+            try (InputStream in = channel.get(remotePath, null, position)) {
+                while (position < segment.end) {
+                    if (failed.get()) {
+                        throw new IOException("下载已中止");
+                    }
+                    int toRead = (int) Math.min(buffer.length, segment.end - position);
+                    int read = in.read(buffer, 0, toRead);
+                    if (read == -1) {
+                        throw new IOException("远程文件提前结束: " + position + "/" + segment.end);
+                    }
+                    ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+                    while (byteBuffer.hasRemaining()) {
+                        position += fileChannel.write(byteBuffer, position);
+                    }
+                    reporter.add(read);
+
+                    uncommitted += read;
+                    if (uncommitted >= COMMIT_INTERVAL_BYTES || position >= segment.end) {
+                        // 先确保数据落盘，再推进日志里的偏移
+                        fileChannel.force(false);
+                        journal.commit(segment, position);
+                        uncommitted = 0;
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    private String remoteSha256(String remotePath) throws Exception {
+        String output = sshManager.executeForOutput(
+                "wsl -d Ubuntu2204 sha256sum \"" + VideoManager.convertToWslPath(remotePath) + "\"");
+        String hash = output.trim().split("\\s+")[0];
+        if (hash.length() != 64) {
+            throw new IOException("无法获取远程文件校验值: " + output.trim());
+        }
+        return hash;
+    }
+
+    private static String localSha256(String localPath) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        try (RandomAccessFile file = new RandomAccessFile(localPath, "r")) {
+            FileChannel channel = file.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest()) {
+            sb.append(String.format(Locale.US, "%02x", b));
+        }
+        return sb.toString();
+    }
+
+    private static String formatSize(long bytes) {
+        return String.format(Locale.US, "%.1f MB", bytes / (1024.0 * 1024));
+    }
+
+    private static class ProgressReporter {
+        private final long total;
+        private final long resumed;
+        private final SshManager.ProgressCallback callback;
+        private final AtomicLong transferred = new AtomicLong();
+        private final AtomicLong lastReportAt = new AtomicLong();
+        private final long startedAt = System.currentTimeMillis();
+
+        ProgressReporter(long total, long resumed, SshManager.ProgressCallback callback) {
+            this.total = total;
+            this.resumed = resumed;
+            this.callback = callback;
+        }
+
+        void add(long bytes) {
+            long done = transferred.addAndGet(bytes);
+            long now = System.currentTimeMillis();
+            long last = lastReportAt.get();
+            // 多个分段线程同时写入，只让抢到时间片的那个线程回调，避免刷屏
+            if (callback != null && now - last >= REPORT_INTERVAL_MS && lastReportAt.compareAndSet(last, now)) {
+                int percent = total > 0 ? (int) ((resumed + done) * 100 / total) : 0;
+                callback.onProgress(percent, "下载中: " + percent + "% (" + formatSpeed(done, now) + ")");
+            }
+        }
+
+        void finish(boolean verified) {
+            if (callback != null) {
+                String message = "下载完成，平均速度 " + formatSpeed(transferred.get(), System.currentTimeMillis());
+                callback.onProgress(100, verified ? message + "，校验通过" : message);
+            }
+        }
+
+        private String formatSpeed(long bytes, long now) {
+            long elapsed = Math.max(1, now - startedAt);
+            double mbPerSecond = bytes * 1000.0 / elapsed / (1024 * 1024);
+            return String.format(Locale.US, "%.1f MB/s", mbPerSecond);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.playerdemo.data.repository;
+
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.BaseDataSource;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.jcraft.jsch.ChannelSftp;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.InputStream;
+
+// 边下边播：每次 open() 从 DataSpec.position 发起 SFTP 偏移读取，拖动进度条直接跳到对应字节
+public class SftpDataSource extends BaseDataSource {
+    public static final String SCHEME = "sftp";
+
+    private final SshManager sshManager;
+
+    @Nullable private Uri uri;
+    @Nullable private ChannelSftp channel;
+    @Nullable private InputStream inputStream;
+    private long bytesRemaining;
+    private boolean readFailed;
+    private boolean opened;
+
+    public SftpDataSource(SshManager sshManager) {
+        super(/* isNetwork= */ true);
+        this.sshManager = sshManager;
+    }
+
+    public static Uri buildUri(String remotePath) {
+        return new Uri.Builder().scheme(SCHEME).path(remotePath).build();
+    }
+
+    @Override
+    public long open(@NonNull DataSpec dataSpec) throws IOException {
+        uri = dataSpec.uri;
+        String remotePath = dataSpec.uri.getPath();
+        transferInitializing(dataSpec);
+
+        long fileSize;
+        try {
+            channel = sshManager.leaseSftpChannel();
+            fileSize = channel.stat(remotePath).getSize();
+            if (dataSpec.position > fileSize) {
+                throw new EOFException("读取位置超出文件长度: " + dataSpec.position);
+            }
+            inputStream = channel.get(remotePath, null, dataSpec.position);
+        } catch (IOException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("打开远程视频被中断");
+        } catch (Exception e) {
+            throw new IOException("打开远程视频失败: " + e.getMessage(), e);
+        }
+
+        bytesRemaining = dataSpec.length != C.LENGTH_UNSET
+                ? dataSpec.length
+                : fileSize - dataSpec.position;
+
+        opened = true;
+        transferStarted(dataSpec);
+        return bytesRemaining;
+    }
+
+    @Override
+    public int read(@NonNull byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (bytesRemaining == 0) {
+            return C.RESULT_END_OF_INPUT;
+        }
+
+        int toRead = bytesRemaining == C.LENGTH_UNSET ? length : (int) Math.min(length, bytesRemaining);
+        int read;
+        try {
+            read = inputStream.read(buffer, offset, toRead);
+        } catch (IOException e) {
+            readFailed = true;
+            throw e;
+        }
+        if (read == -1) {
+            return C.RESULT_END_OF_INPUT;
+        }
+
+        if (bytesRemaining != C.LENGTH_UNSET) {
+            bytesRemaining -= read;
+        }
+        bytesTransferred(read);
+        return read;
+    }
+
+    @Nullable
+    @Override
+    public Uri getUri() {
+        return uri;
+    }
+
+    @Override
+    public void close() {
+        uri = null;
+        try {
+            if (inputStream != null) {
+                inputStream.close();
+            }
+        } catch (IOException ignored) {
+            readFailed = true;
+        } finally {
+            inputStream = null;
+            if (channel != null) {
+                // 中途关闭的偏移读取可能还有未消费的响应包，只有正常读完的通道才放回池里
+                sshManager.releaseSftpChannel(channel, !readFailed && bytesRemaining == 0);
+                channel = null;
+            }
+            readFailed = false;
+            if (opened) {
+                opened = false;
+                transferEnded();
+            }
+        }
+    }
+
+    public static class Factory implements DataSource.Factory {
+        private final SshManager sshManager;
+
+        public Factory(SshManager sshManager) {
+            this.sshManager = sshManager;
+        }
+
+        @NonNull
+        @Override
+        public DataSource createDataSource() {
+            return new SftpDataSource(sshManager);
+        }
+    }
+}
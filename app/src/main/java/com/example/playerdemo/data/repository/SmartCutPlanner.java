@@ -0,0 +1,152 @@
+package com.example.playerdemo.data.repository;
+
+import com.example.playerdemo.data.model.SubtitleTrack;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// 智能剪辑的切分规划：保留区间里两个关键帧之间的部分直接复制码流，
+// 只有区间开头到第一个关键帧、最后一个关键帧到区间结尾这两小段需要重新编码。
+// 时间单位为微秒，和 ffprobe 输出的 pts_time 精度一致
+class SmartCutPlanner {
+    // 相邻字幕间隔小于这个值时合并成一个区间，避免切出大量零碎片段
+    static final long MERGE_GAP_US = 300_000;
+    // 可复制部分短于这个值时整段重新编码，拆成三段反而更慢
+    static final long MIN_COPY_US = 2_000_000;
+
+    static class Piece {
+        final long startUs;
+        final long endUs;
+        final boolean copy;
+
+        Piece(long startUs, long endUs, boolean copy) {
+            this.startUs = startUs;
+            this.endUs = endUs;
+            this.copy = copy;
+        }
+
+        long durationUs() {
+            return endUs - startUs;
+        }
+    }
+
+    // 保留的字幕区间，按时间排序并合并相邻区间，返回 [start0, end0, start1, end1, ...]
+    static long[] keptRanges(SubtitleTrack track) {
+        List<long[]> ranges = new ArrayList<>();
+        for (int i = track.nextKept(0); i >= 0; i = track.nextKept(i + 1)) {
+            long start = track.getStartMs(i) * 1000;
+            long end = track.getEndMs(i) * 1000;
+            if (end > start) {
+                ranges.add(new long[]{start, end});
+            }
+        }
+        ranges.sort((a, b) -> Long.compare(a[0], b[0]));
+
+        long[] merged = new long[ranges.size() * 2];
+        int count = 0;
+        for (long[] range : ranges) {
+            if (count > 0 && range[0] - merged[count - 1] <= MERGE_GAP_US) {
+                merged[count - 1] = Math.max(merged[count - 1], range[1]);
+            } else {
+                merged[count++] = range[0];
+                merged[count++] = range[1];
+            }
+        }
+        return Arrays.copyOf(merged, count);
+    }
+
+    // keyframesUs 必须递增
+    static List<Piece> plan(long[] ranges, long[] keyframesUs) {
+        List<Piece> pieces = new ArrayList<>();
+        for (int r = 0; r + 1 < ranges.length; r += 2) {
+            long start = ranges[r];
+            long end = ranges[r + 1];
+            long firstKey = firstAtOrAfter(keyframesUs, start);
+            long lastKey = lastAtOrBefore(keyframesUs, end);
+
+            if (firstKey < 0 || lastKey < 0 || lastKey - firstKey < MIN_COPY_US) {
+                pieces.add(new Piece(start, end, false));
+                continue;
+            }
+            if (firstKey > start) {
+                pieces.add(new Piece(start, firstKey, false));
+            }
+            pieces.add(new Piece(firstKey, lastKey, true));
+            if (end > lastKey) {
+                pieces.add(new Piece(lastKey, end, false));
+            }
+        }
+        return pieces;
+    }
+
+    // 片段文件名由时间区间和编码参数决定，同样的区间在下次剪辑时可以直接复用
+    static String pieceName(Piece piece, String paramsKey) {
+        return (piece.copy ? "c_" : "e_") + piece.startUs + "_" + piece.endUs + "_" + paramsKey + ".ts";
+    }
+
+    static String shortHash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 6; i++) {
+                sb.append(String.format(Locale.US, "%02x", digest[i]));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(value.hashCode());
+        }
+    }
+
+    // 关键帧列表的缓存格式：每行一个微秒值
+    static String formatKeyframes(long[] keyframesUs) {
+        StringBuilder sb = new StringBuilder(keyframesUs.length * 12);
+        for (long key : keyframesUs) {
+            sb.append(key).append('\n');
+        }
+        return sb.toString();
+    }
+
+    static long[] parseKeyframes(String text) {
+        long[] keys = new long[256];
+        int count = 0;
+        for (String line : text.split("\n")) {
+            line = line.trim();
+            if (line.isEmpty()) continue;
+            if (count == keys.length) {
+                keys = Arrays.copyOf(keys, count * 2);
+            }
+            keys[count++] = Long.parseLong(line);
+        }
+        return Arrays.copyOf(keys, count);
+    }
+
+    static String seconds(long us) {
+        return String.format(Locale.US, "%.6f", us / 1_000_000.0);
+    }
+
+    // 解析 ffprobe 的 "12.345678" 秒数，失败返回 -1
+    static long parseSecondsUs(String value) {
+        try {
+            return Math.round(Double.parseDouble(value.trim()) * 1_000_000);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long firstAtOrAfter(long[] keys, long value) {
+        int index = Arrays.binarySearch(keys, value);
+        if (index < 0) index = -index - 1;
+        return index < keys.length ? keys[index] : -1;
+    }
+
+    private static long lastAtOrBefore(long[] keys, long value) {
+        int index = Arrays.binarySearch(keys, value);
+        if (index < 0) index = -index - 2;
+        return index >= 0 ? keys[index] : -1;
+    }
+}
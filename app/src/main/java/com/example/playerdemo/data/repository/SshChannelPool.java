@@ -0,0 +1,138 @@
+package com.example.playerdemo.data.repository;
+
+import com.jcraft.jsch.ChannelExec;
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// 单个 Session 上的通道池：SFTP 通道按操作租用、用完归还复用，exec 通道用完即关。
+// 许可数对应服务器 sshd_config 的 MaxSessions，空闲的 SFTP 通道同样占用许可，
+// 所以打开 exec 通道时如果许可不够，会先关掉一个空闲 SFTP 通道腾出位置。
+// 另外预留一个许可给取消任务这类控制命令，通道全被长任务占满时也能执行
+class SshChannelPool {
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+
+    private final Session session;
+    private final Semaphore permits;
+    private final Semaphore controlPermit = new Semaphore(1);
+    private final ConcurrentLinkedDeque<ChannelSftp> idleSftp = new ConcurrentLinkedDeque<>();
+    private volatile boolean closed = false;
+
+    SshChannelPool(Session session, int maxChannels) {
+        this.session = session;
+        this.permits = new Semaphore(Math.max(1, maxChannels - 1), true);
+    }
+
+    ChannelSftp leaseSftp(long timeoutMs) throws JSchException, InterruptedException {
+        ChannelSftp channel;
+        while ((channel = idleSftp.pollFirst()) != null) {
+            if (channel.isConnected()) {
+                return channel;
+            }
+            // 已失效的空闲通道，归还它占用的许可
+            permits.release();
+        }
+
+        acquire(timeoutMs);
+        try {
+            ChannelSftp opened = (ChannelSftp) session.openChannel("sftp");
+            opened.connect(CONNECT_TIMEOUT_MS);
+            return opened;
+        } catch (JSchException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    void releaseSftp(ChannelSftp channel) {
+        if (channel == null) return;
+        if (!closed && channel.isConnected()) {
+            idleSftp.offerFirst(channel);
+        } else {
+            invalidateSftp(channel);
+        }
+    }
+
+    // 传输中出错的通道状态不可信，直接丢弃
+    void invalidateSftp(ChannelSftp channel) {
+        if (channel == null) return;
+        try {
+            channel.disconnect();
+        } finally {
+            permits.release();
+        }
+    }
+
+    ChannelExec openExec(long timeoutMs) throws JSchException, InterruptedException {
+        if (!permits.tryAcquire()) {
+            ChannelSftp idle = idleSftp.pollLast();
+            if (idle != null) {
+                // 直接接管这个空闲 SFTP 通道的许可
+                idle.disconnect();
+            } else {
+                acquire(timeoutMs);
+            }
+        }
+        try {
+            return (ChannelExec) session.openChannel("exec");
+        } catch (JSchException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    void releaseExec(ChannelExec channel) {
+        if (channel == null) return;
+        try {
+            channel.disconnect();
+        } finally {
+            permits.release();
+        }
+    }
+
+    // 控制通道不和普通通道竞争许可，同一时刻最多一个
+    ChannelExec openControlExec(long timeoutMs) throws JSchException, InterruptedException {
+        if (closed) {
+            throw new JSchException("连接已关闭");
+        }
+        if (!controlPermit.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+            throw new JSchException("等待控制通道超时");
+        }
+        try {
+            return (ChannelExec) session.openChannel("exec");
+        } catch (JSchException | RuntimeException e) {
+            controlPermit.release();
+            throw e;
+        }
+    }
+
+    void releaseControlExec(ChannelExec channel) {
+        if (channel == null) return;
+        try {
+            channel.disconnect();
+        } finally {
+            controlPermit.release();
+        }
+    }
+
+    void close() {
+        closed = true;
+        ChannelSftp channel;
+        while ((channel = idleSftp.pollFirst()) != null) {
+            channel.disconnect();
+        }
+    }
+
+    private void acquire(long timeoutMs) throws JSchException, InterruptedException {
+        if (closed) {
+            throw new JSchException("连接已关闭");
+        }
+        if (!permits.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+            throw new JSchException("等待可用通道超时");
+        }
+    }
+}
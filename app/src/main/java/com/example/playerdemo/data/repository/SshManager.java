@@ -1,31 +1,56 @@
 package com.example.playerdemo.data.repository;
 
 import com.example.playerdemo.data.model.WslConfig;
-import com.jcraft.jsch.Channel;
 import com.jcraft.jsch.ChannelExec;
 import com.jcraft.jsch.ChannelSftp;
 import com.jcraft.jsch.JSch;
 import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SftpATTRS;
 import com.jcraft.jsch.JSchException;
 import com.jcraft.jsch.SftpException;
 
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.util.Properties;
 import java.util.Vector;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class SshManager {
     private static SshManager instance;
-    private Session session;
-    private ChannelSftp sftpChannel;
+    private static final long LEASE_TIMEOUT_MS = 30000;
+    // 传输、列目录等操作超过这么久没有任何进展（字节、目录项）即视为连接卡死
+    private static final long IDLE_TIMEOUT_MS = 2 * 60 * 1000;
+    // executeForOutputAsync 只在结束时拿到输出，按总时长限制；批量封面、时长探测脚本也在这个范围内
+    private static final long EXEC_TIMEOUT_MS = 10 * 60 * 1000;
+    // 长时间的转码、识别命令按输出行判断进展，静默超过这么久才超时；正常结束前的取消由 RemoteJob 负责
+    private static final long EXEC_IDLE_TIMEOUT_MS = 30 * 60 * 1000;
+
+    private volatile Session session;
+    private volatile SshChannelPool channelPool;
     private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
     private final AtomicBoolean isConnected = new AtomicBoolean(false);
     private WslConfig currentConfig;
 
@@ -53,6 +78,15 @@ public class SshManager {
         void onProgress(int progress, String message);
     }
 
+    interface SftpOperation<T> {
+        T run(ChannelSftp channel) throws Exception;
+    }
+
+    // 在线程池里执行的任务，有进展时调用 progress 推迟空闲超时
+    private interface Task<T> {
+        T call(Runnable progress) throws Exception;
+    }
+
     public void connect(WslConfig config, ConnectionCallback callback) {
         executor.execute(() -> {
             try {
@@ -70,9 +104,9 @@ public class SshManager {
                 
                 session.connect(5000);
 
-                ChannelSftp channel = (ChannelSftp) session.openChannel("sftp");
-                channel.connect(5000);
-                sftpChannel = channel;
+                channelPool = new SshChannelPool(session, config.getMaxSessions());
+                // 预先建立一个 SFTP 通道，顺便确认服务器开启了 sftp 子系统
+                channelPool.releaseSftp(channelPool.leaseSftp(LEASE_TIMEOUT_MS));
 
                 currentConfig = config;
                 isConnected.set(true);
@@ -85,6 +119,12 @@ public class SshManager {
                 if (callback != null) {
                     callback.onFailure(parseConnectionError(e.getMessage()));
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                isConnected.set(false);
+                if (callback != null) {
+                    callback.onFailure("连接被中断");
+                }
             }
         });
     }
@@ -119,25 +159,26 @@ public class SshManager {
         });
     }
 
-    public void executeCommand(String command, CommandCallback callback) {
-        if (!isConnected.get() || session == null || !session.isConnected()) {
+    public CompletableFuture<Integer> executeCommand(String command, CommandCallback callback) {
+        if (!isConnected()) {
             if (callback != null) {
                 callback.onError("未连接到服务器");
             }
-            return;
+            return notConnected();
         }
 
-        executor.execute(() -> {
-            Channel channel = null;
+        SshChannelPool pool = channelPool;
+        return submit(EXEC_IDLE_TIMEOUT_MS, progress -> {
+            ChannelExec channel = null;
             try {
-                channel = session.openChannel("exec");
-                ((ChannelExec) channel).setCommand(command);
+                channel = pool.openExec(LEASE_TIMEOUT_MS);
+                channel.setCommand(command);
                 
                 ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
                 ByteArrayOutputStream errorStream = new ByteArrayOutputStream();
                 
                 channel.setInputStream(null);
-                ((ChannelExec) channel).setErrStream(errorStream);
+                channel.setErrStream(errorStream);
                 
                 channel.connect(30000);
 
@@ -146,168 +187,349 @@ public class SshManager {
                 
                 String line;
                 while ((line = reader.readLine()) != null) {
+                    progress.run();
                     if (callback != null) {
                         callback.onOutput(line);
                     }
                 }
 
-                channel.disconnect();
+                int exitStatus = channel.getExitStatus();
+                pool.releaseExec(channel);
+                channel = null;
 
                 if (callback != null) {
-                    callback.onComplete(((ChannelExec) channel).getExitStatus());
+                    callback.onComplete(exitStatus);
                 }
+                return exitStatus;
             } catch (Exception e) {
                 if (callback != null) {
                     callback.onError(e.getMessage());
                 }
+                throw e;
+            } finally {
+                // 取消或超时会中断读取线程，这里关闭通道
                 if (channel != null) {
-                    channel.disconnect();
+                    pool.releaseExec(channel);
                 }
             }
         });
     }
 
-    public void executeCommandWithWsl(String command, CommandCallback callback) {
+    // 在调用线程上同步执行命令并返回标准输出，退出码非 0 时抛异常
+    String executeForOutput(String command) throws Exception {
+        SshChannelPool pool = channelPool;
+        if (!isConnected() || pool == null) {
+            throw new JSchException("未连接到服务器");
+        }
+
+        ChannelExec channel = pool.openExec(LEASE_TIMEOUT_MS);
+        try {
+            return readOutput(channel, command);
+        } finally {
+            pool.releaseExec(channel);
+        }
+    }
+
+    // 走预留的控制通道执行短命令（如向远程进程组发信号），不受长任务占满通道的影响
+    public CompletableFuture<String> executeControlAsync(String command) {
+        SshChannelPool pool = channelPool;
+        if (!isConnected() || pool == null) {
+            return notConnected();
+        }
+        return submit(IDLE_TIMEOUT_MS, progress -> {
+            ChannelExec channel = pool.openControlExec(LEASE_TIMEOUT_MS);
+            try {
+                return readOutput(channel, command);
+            } finally {
+                pool.releaseControlExec(channel);
+            }
+        });
+    }
+
+    private static String readOutput(ChannelExec channel, String command) throws Exception {
+        channel.setCommand(command);
+        channel.setInputStream(null);
+        ByteArrayOutputStream errorStream = new ByteArrayOutputStream();
+        channel.setErrStream(errorStream);
+
+        InputStream inputStream = channel.getInputStream();
+        channel.connect(30000);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+        while (!channel.isClosed()) {
+            Thread.sleep(50);
+        }
+
+        int exitStatus = channel.getExitStatus();
+        if (exitStatus != 0) {
+            throw new IOException("命令执行失败(" + exitStatus + "): " + errorStream.toString("UTF-8").trim());
+        }
+        return outputStream.toString("UTF-8");
+    }
+
+    // 启动一个需要持续读写 stdin/stdout 的远程进程，通道一直占用到调用方 close
+    public InteractiveProcess startInteractive(String command) throws Exception {
+        SshChannelPool pool = channelPool;
+        if (!isConnected() || pool == null) {
+            throw new JSchException("未连接到服务器");
+        }
+
+        ChannelExec channel = pool.openExec(LEASE_TIMEOUT_MS);
+        try {
+            channel.setCommand(command);
+            OutputStream stdin = channel.getOutputStream();
+            InputStream stdout = channel.getInputStream();
+            channel.connect(30000);
+            return new InteractiveProcess(pool, channel, stdin, stdout);
+        } catch (Exception e) {
+            pool.releaseExec(channel);
+            throw e;
+        }
+    }
+
+    public static class InteractiveProcess implements Closeable {
+        private final SshChannelPool pool;
+        private final ChannelExec channel;
+        private final Writer stdin;
+        private final BufferedReader stdout;
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+
+        InteractiveProcess(SshChannelPool pool, ChannelExec channel, OutputStream stdin, InputStream stdout) {
+            this.pool = pool;
+            this.channel = channel;
+            this.stdin = new OutputStreamWriter(stdin, StandardCharsets.UTF_8);
+            this.stdout = new BufferedReader(new InputStreamReader(stdout, StandardCharsets.UTF_8));
+        }
+
+        public synchronized void writeLine(String line) throws IOException {
+            stdin.write(line);
+            stdin.write('\n');
+            stdin.flush();
+        }
+
+        // 进程退出后返回 null
+        public String readLine() throws IOException {
+            return stdout.readLine();
+        }
+
+        public boolean isAlive() {
+            return !closed.get() && !channel.isClosed();
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                pool.releaseExec(channel);
+            }
+        }
+    }
+
+    public CompletableFuture<Integer> executeCommandWithWsl(String command, CommandCallback callback) {
         String wslCommand = "wsl -d Ubuntu2204 " + command;
-        executeCommand(wslCommand, callback);
+        return executeCommand(wslCommand, callback);
+    }
+
+    public CompletableFuture<String> executeForOutputAsync(String command) {
+        if (!isConnected()) {
+            return notConnected();
+        }
+        return submit(EXEC_TIMEOUT_MS, progress -> executeForOutput(command));
     }
 
-    public void downloadFile(String remotePath, String localPath, ProgressCallback callback) {
-        if (!isConnected.get() || sftpChannel == null) {
-            if (callback != null) {callback.onProgress(0, "未连接到服务器");
+    public CompletableFuture<File> downloadFile(String remotePath, String localPath, ProgressCallback callback) {
+        if (!isConnected()) {
+            if (callback != null) {
+                callback.onProgress(0, "未连接到服务器");
             }
-            return;
+            return notConnected();
         }
 
-        executor.execute(() -> {
+        return submit(IDLE_TIMEOUT_MS, progress -> {
             try {
-                // 使用匿名内部类代替 Lambda
-                sftpChannel.get(remotePath, localPath, new com.jcraft.jsch.SftpProgressMonitor() {
-                    private long max = 0;
-                    private long count = 0;
-
-                    @Override
-                    public void init(int op, String src, String dest, long max) {
-                        this.max = max;
-                    }
+                withSftp(channel -> {
+                    // 使用匿名内部类代替 Lambda
+                    channel.get(remotePath, localPath, new com.jcraft.jsch.SftpProgressMonitor() {
+                        private long max = 0;
+                        private long count = 0;
+
+                        @Override
+                        public void init(int op, String src, String dest, long max) {
+                            this.max = max;
+                        }
 
-                    @Override
-                    public boolean count(long count) {
-                        this.count += count;
-                        if (callback != null && max > 0) {
-                            int percent = (int) ((this.count * 100) / max);
-                            callback.onProgress(percent, "下载中: " + percent + "%");
+                        @Override
+                        public boolean count(long count) {
+                            progress.run();
+                            this.count += count;
+                            if (callback != null && max > 0) {
+                                int percent = (int) ((this.count * 100) / max);
+                                callback.onProgress(percent, "下载中: " + percent + "%");
+                            }
+                            // 返回 true 继续传输，返回 false 终止传输（Future 被取消时线程会被中断）
+                            return !Thread.currentThread().isInterrupted();
                         }
-                        return true; // 返回 true 继续传输，返回 false 终止传输
-                    }
 
-                    @Override
-                    public void end() {
-                        if (callback != null) {
-                            callback.onProgress(100, "下载完成");
+                        @Override
+                        public void end() {
+                            if (callback != null) {
+                                callback.onProgress(100, "下载完成");
+                            }
                         }
-                    }
+                    });
+                    return null;
                 });
-            } catch (SftpException e) {
+                return new File(localPath);
+            } catch (Exception e) {
                 if (callback != null) {
                     callback.onProgress(0, "下载失败: " + e.getMessage());
                 }
+                throw e;
             }
         });
     }
 
-    public void uploadFile(String localPath, String remotePath, ProgressCallback callback) {
-        if (!isConnected.get() || sftpChannel == null) {
+    public CompletableFuture<File> downloadFileParallel(String remotePath, String localPath, ProgressCallback callback) {
+        return downloadFileParallel(remotePath, localPath, false, callback);
+    }
+
+    // 大文件下载：分段并行拉取，支持断点续传，verifyChecksum 为 true 时完成后与远程 sha256sum 比对
+    public CompletableFuture<File> downloadFileParallel(String remotePath, String localPath, boolean verifyChecksum,
+                                                        ProgressCallback callback) {
+        if (!isConnected()) {
             if (callback != null) {
                 callback.onProgress(0, "未连接到服务器");
             }
-            return;
+            return notConnected();
         }
 
-        executor.execute(() -> {
+        SegmentedDownloader downloader = new SegmentedDownloader(this, executor, currentConfig.getMaxSessions());
+        return submit(IDLE_TIMEOUT_MS, progress -> {
             try {
-                sftpChannel.put(localPath, remotePath, new com.jcraft.jsch.SftpProgressMonitor() {
-                    private long max = 0;
-                    private long count = 0;
-
-                    @Override
-                    public void init(int op, String src, String dest, long max) {
-                        this.max = max;
+                downloader.download(remotePath, localPath, verifyChecksum, (percent, message) -> {
+                    progress.run();
+                    if (callback != null) {
+                        callback.onProgress(percent, message);
                     }
+                });
+                return new File(localPath);
+            } catch (Exception e) {
+                if (callback != null) {
+                    callback.onProgress(0, "下载失败: " + e.getMessage());
+                }
+                throw e;
+            }
+        });
+    }
 
-                    @Override
-                    public boolean count(long count) {
-                        this.count += count;
-                        if (callback != null && max > 0) {
-                            int percent = (int) ((this.count * 100) / max);
-                            callback.onProgress(percent, "上传中: " + percent + "%");
+    public CompletableFuture<Void> uploadFile(String localPath, String remotePath, ProgressCallback callback) {
+        if (!isConnected()) {
+            if (callback != null) {
+                callback.onProgress(0, "未连接到服务器");
+            }
+            return notConnected();
+        }
+
+        return submit(IDLE_TIMEOUT_MS, progress -> {
+            try {
+                withSftp(channel -> {
+                    channel.put(localPath, remotePath, new com.jcraft.jsch.SftpProgressMonitor() {
+                        private long max = 0;
+                        private long count = 0;
+
+                        @Override
+                        public void init(int op, String src, String dest, long max) {
+                            this.max = max;
+                        }
+
+                        @Override
+                        public boolean count(long count) {
+                            progress.run();
+                            this.count += count;
+                            if (callback != null && max > 0) {
+                                int percent = (int) ((this.count * 100) / max);
+                                callback.onProgress(percent, "上传中: " + percent + "%");
+                            }
+                            return !Thread.currentThread().isInterrupted();
                         }
-                        return true;
-                    }
 
-                    @Override
-                    public void end() {}
+                        @Override
+                        public void end() {}
+                    });
+                    return null;
                 });
-            } catch (SftpException e) {
+                return null;
+            } catch (Exception e) {
                 if (callback != null) {
                     callback.onProgress(0, "上传失败: " + e.getMessage());
                 }
+                throw e;
             }
         });
     }
 
-    public void uploadContent(String content, String remotePath, ProgressCallback callback) {
-        if (!isConnected.get() || sftpChannel == null) {
+    public CompletableFuture<Void> uploadContent(String content, String remotePath, ProgressCallback callback) {
+        if (!isConnected()) {
             if (callback != null) {
                 callback.onProgress(0, "未连接到服务器");
             }
-            return;
+            return notConnected();
         }
 
-        executor.execute(() -> {
+        return submit(IDLE_TIMEOUT_MS, progress -> {
             try {
                 byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
                 ByteArrayInputStream inputStream = new ByteArrayInputStream(bytes);
 
-                // 将 Lambda 改为匿名内部类实现 SftpProgressMonitor
-                sftpChannel.put(inputStream, remotePath, new com.jcraft.jsch.SftpProgressMonitor() {
-                    private long max = 0;
-                    private long count = 0;
-
-                    @Override
-                    public void init(int op, String src, String dest, long max) {
-                        // 对于 InputStream 上传，max 可能是 -1（如果 JSch 无法预知流大小）
-                        // 但由于我们是 byte[]，我们可以手动设置 max
-                        this.max = bytes.length;
-                    }
+                withSftp(channel -> {
+                    // 将 Lambda 改为匿名内部类实现 SftpProgressMonitor
+                    channel.put(inputStream, remotePath, new com.jcraft.jsch.SftpProgressMonitor() {
+                        private long max = 0;
+                        private long count = 0;
+
+                        @Override
+                        public void init(int op, String src, String dest, long max) {
+                            // 对于 InputStream 上传，max 可能是 -1（如果 JSch 无法预知流大小）
+                            // 但由于我们是 byte[]，我们可以手动设置 max
+                            this.max = bytes.length;
+                        }
 
-                    @Override
-                    public boolean count(long count) {
-                        this.count += count;
-                        if (callback != null && max > 0) {
-                            int percent = (int) ((this.count * 100) / max);
-                            callback.onProgress(percent, "上传中: " + percent + "%");
+                        @Override
+                        public boolean count(long count) {
+                            progress.run();
+                            this.count += count;
+                            if (callback != null && max > 0) {
+                                int percent = (int) ((this.count * 100) / max);
+                                callback.onProgress(percent, "上传中: " + percent + "%");
+                            }
+                            return !Thread.currentThread().isInterrupted();
                         }
-                        return true;
-                    }
 
-                    @Override
-                    public void end() {
-                        if (callback != null) {
-                            callback.onProgress(100, "上传完成");
+                        @Override
+                        public void end() {
+                            if (callback != null) {
+                                callback.onProgress(100, "上传完成");
+                            }
                         }
-                    }
+                    });
+                    return null;
                 });
-            } catch (SftpException e) {
+                return null;
+            } catch (Exception e) {
                 if (callback != null) {
                     callback.onProgress(0, "上传失败: " + e.getMessage());
                 }
+                throw e;
             }
         });
     }
 
     public String readRemoteFile(String remotePath) {
-        if (!isConnected.get() || sftpChannel == null) {
+        if (!isConnected()) {
             return null;
         }
 
@@ -320,38 +542,198 @@ public class SshManager {
 
         // 使用 try-with-resources 可以自动关闭流，更安全
         try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-            sftpChannel.get(remotePath, outputStream);
+            withSftp(channel -> {
+                channel.get(remotePath, outputStream);
+                return null;
+            });
 
             // 这里的 toString() 会抛出 UnsupportedEncodingException
             return outputStream.toString("UTF-8");
 
-        } catch (SftpException | java.io.UnsupportedEncodingException e) {
-            // 同时捕获 SFTP 异常和编码异常
-            // 可以选择记录日志 e.printStackTrace();
-            return null;
         } catch (Exception e) {
-            // 捕获其他所有可能的异常，增加代码健壮性
+            // 捕获 SFTP 异常、编码异常以及其他所有可能的异常，增加代码健壮性
             return null;
         }
     }
 
+    public CompletableFuture<String> readRemoteFileAsync(String remotePath) {
+        if (!isConnected()) {
+            return notConnected();
+        }
+        return submit(IDLE_TIMEOUT_MS, progress -> {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            withSftp(channel -> {
+                channel.get(remotePath, outputStream);
+                return null;
+            });
+            return outputStream.toString("UTF-8");
+        });
+    }
+
+    public interface StreamConsumer<T> {
+        T accept(InputStream in) throws Exception;
+    }
+
+    // 边读边处理远程文件，不把整个文件先读进内存
+    public <T> CompletableFuture<T> streamRemoteFile(String remotePath, StreamConsumer<T> consumer) {
+        if (!isConnected()) {
+            return notConnected();
+        }
+        return submit(IDLE_TIMEOUT_MS, progress -> withSftp(channel -> {
+            try (InputStream in = channel.get(remotePath)) {
+                return consumer.accept(in);
+            }
+        }));
+    }
+
+    // 为需要长时间独占通道的调用方（如边下边播）租用一个 SFTP 通道，用完必须归还
+    public ChannelSftp leaseSftpChannel() throws JSchException, InterruptedException {
+        SshChannelPool pool = channelPool;
+        if (!isConnected() || pool == null) {
+            throw new JSchException("未连接到服务器");
+        }
+        return pool.leaseSftp(LEASE_TIMEOUT_MS);
+    }
+
+    public void releaseSftpChannel(ChannelSftp channel, boolean reusable) {
+        SshChannelPool pool = channelPool;
+        if (pool == null) {
+            channel.disconnect();
+        } else if (reusable) {
+            pool.releaseSftp(channel);
+        } else {
+            pool.invalidateSftp(channel);
+        }
+    }
 
     public Vector<ChannelSftp.LsEntry> listFiles(String remotePath) {
-        if (!isConnected.get() || sftpChannel == null) {
+        if (!isConnected()) {
             return null;
         }
 
         try {
-            return sftpChannel.ls(remotePath);
-        } catch (SftpException e) {
+            return withSftp(channel -> channel.ls(remotePath));
+        } catch (Exception e) {
             return null;
         }
     }
 
+    public CompletableFuture<Vector<ChannelSftp.LsEntry>> listFilesAsync(String remotePath) {
+        if (!isConnected()) {
+            return notConnected();
+        }
+        return submit(IDLE_TIMEOUT_MS, progress -> withSftp(channel -> channel.ls(remotePath)));
+    }
+
+    // 边收边处理目录项：服务器每返回一批就交给 selector，不等整个目录列完；
+    // selector 返回 BREAK 时不再请求后面的条目，大目录可以提前结束
+    public CompletableFuture<Void> listFilesStreaming(String remotePath, ChannelSftp.LsEntrySelector selector) {
+        if (!isConnected()) {
+            return notConnected();
+        }
+        return submit(IDLE_TIMEOUT_MS, progress -> withSftp(channel -> {
+            channel.ls(remotePath, entry -> {
+                progress.run();
+                return selector.select(entry);
+            });
+            return null;
+        }));
+    }
+
+    public CompletableFuture<SftpATTRS> statAsync(String remotePath) {
+        if (!isConnected()) {
+            return notConnected();
+        }
+        return submit(IDLE_TIMEOUT_MS, progress -> withSftp(channel -> channel.stat(remotePath)));
+    }
+
+    // 给任意 Future 加超时：到期后以 TimeoutException 结束。这里的异步方法返回的 Future 已经自带超时，
+    // 结束时会中断执行线程并释放通道；这个方法用于等待其他事件（如远程进程组号）
+    public <T> CompletableFuture<T> withTimeout(CompletableFuture<T> future, long timeoutMs) {
+        ScheduledFuture<?> timer = scheduler.schedule(
+                () -> future.completeExceptionally(new TimeoutException("操作超时(" + timeoutMs + "ms)")),
+                timeoutMs, TimeUnit.MILLISECONDS);
+        future.whenComplete((result, error) -> timer.cancel(false));
+        return future;
+    }
+
+    // 把 Future 链里包装过的异常还原成可读的错误信息
+    public static String describeError(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof CancellationException) return "操作已取消";
+        return cause.getMessage() != null ? cause.getMessage() : cause.toString();
+    }
+
+    // 在线程池里执行任务；Future 被取消、超时或异常结束时会中断执行线程，
+    // 阻塞在 SFTP/exec 读取上的操作会随之抛出中断异常并释放通道。
+    // 超过 timeoutMs 没有调用 progress 时以 TimeoutException 结束，不报告进展的任务即为总时长限制
+    private <T> CompletableFuture<T> submit(long timeoutMs, Task<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        AtomicLong lastProgress = new AtomicLong(System.currentTimeMillis());
+        Future<?> running = executor.submit(() -> {
+            try {
+                future.complete(task.call(() -> lastProgress.set(System.currentTimeMillis())));
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        future.whenComplete((result, error) -> {
+            if (error != null) {
+                running.cancel(true);
+            }
+        });
+        scheduleIdleCheck(future, lastProgress, timeoutMs, timeoutMs);
+        return future;
+    }
+
+    private void scheduleIdleCheck(CompletableFuture<?> future, AtomicLong lastProgress, long timeoutMs, long delayMs) {
+        scheduler.schedule(() -> {
+            if (future.isDone()) return;
+            long idle = System.currentTimeMillis() - lastProgress.get();
+            if (idle >= timeoutMs) {
+                future.completeExceptionally(new TimeoutException("操作超时(" + timeoutMs / 1000 + "s 无响应)"));
+            } else {
+                scheduleIdleCheck(future, lastProgress, timeoutMs, timeoutMs - idle);
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private static <T> CompletableFuture<T> notConnected() {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(new JSchException("未连接到服务器"));
+        return future;
+    }
+
+    <T> T withSftp(SftpOperation<T> operation) throws Exception {
+        SshChannelPool pool = channelPool;
+        if (pool == null) {
+            throw new JSchException("未连接到服务器");
+        }
+
+        ChannelSftp channel = pool.leaseSftp(LEASE_TIMEOUT_MS);
+        try {
+            T result = operation.run(channel);
+            pool.releaseSftp(channel);
+            return result;
+        } catch (SftpException e) {
+            // 服务器返回的业务错误（文件不存在等）不影响通道本身，可以继续复用
+            pool.releaseSftp(channel);
+            throw e;
+        } catch (Exception e) {
+            pool.invalidateSftp(channel);
+            throw e;
+        }
+    }
+
     public void disconnect() {
         try {
-            if (sftpChannel != null && sftpChannel.isConnected()) {
-                sftpChannel.disconnect();
+            if (channelPool != null) {
+                channelPool.close();
+                channelPool = null;
             }
             if (session != null && session.isConnected()) {
                 session.disconnect();
@@ -0,0 +1,285 @@
+package com.example.playerdemo.data.repository;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+
+import com.example.playerdemo.data.model.VideoFile;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+// 远程视频的封面缩略图。一个目录的封面由主机上一次 exec 批量生成（只解码关键帧），
+// 列表行可见时才通过 SFTP 拉取对应的小 JPEG。两级缓存：内存里按内存等级限定大小的 LRU 解码位图，
+// 磁盘上按 路径 + 大小 + 修改时间 命名的 JPEG，视频变化后自然换成新的文件名。
+// 本地视频的缩略图由 MediaStore 生成和缓存，这里只经过内存 LRU
+public class ThumbnailCache {
+    private static final String DIR_NAME = "thumbnails";
+    private static final String HOST_DIR = ".autocut_thumbs";
+    private static final int THUMB_WIDTH = 320;
+    // 跳过片头黑屏，短于这个时长的视频退回取第一帧
+    private static final int POSTER_SECONDS = 10;
+    private static final long DISK_MAX_BYTES = 50L * 1024 * 1024;
+
+    private static ThumbnailCache instance;
+    private final File cacheDir;
+    private final LruCache<String, Bitmap> memory;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService ioExecutor = Executors.newFixedThreadPool(2);
+    private final SshManager sshManager = SshManager.getInstance();
+    private final LocalVideoIndex localIndex;
+    // 主机上正在或已经生成封面的视频，key 为缓存键
+    private final Map<String, CompletableFuture<Void>> hostReady = new ConcurrentHashMap<>();
+    // prefetch 之前绑定、直接拉取失败的行在这里等待之后 prefetch 的那一批生成完成，key 为缓存键
+    private final Map<String, CompletableFuture<Void>> awaitingPrefetch = new ConcurrentHashMap<>();
+
+    // 一次加载，行被回收或重新绑定时取消
+    public static class Request {
+        private volatile boolean cancelled;
+        private final CancellationSignal signal = new CancellationSignal();
+
+        public void cancel() {
+            cancelled = true;
+            signal.cancel();
+        }
+    }
+
+    private ThumbnailCache(Context context) {
+        cacheDir = new File(context.getApplicationContext().getCacheDir(), DIR_NAME);
+        localIndex = LocalVideoIndex.getInstance(context);
+        ActivityManager am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        // 内存等级的 1/8 给缩略图，320 宽的 RGB_565 一张约 100KB
+        int maxBytes = am.getMemoryClass() * 1024 * 1024 / 8;
+        memory = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+        ioExecutor.execute(this::trimDisk);
+    }
+
+    public static synchronized ThumbnailCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new ThumbnailCache(context);
+        }
+        return instance;
+    }
+
+    // 列表加载后调用：本地还没有封面的视频交给主机一次性生成，已生成过的跳过。
+    // 脚本按目录 cd 到各自的 .autocut_thumbs，整批只占一次 exec
+    public void prefetch(List<VideoFile> videos) {
+        Map<String, StringBuilder> commandsByDir = new LinkedHashMap<>();
+        CompletableFuture<Void> batch = new CompletableFuture<>();
+        for (VideoFile video : videos) {
+            if (!video.isRemote()) continue;
+            String key = keyFor(video);
+            if (diskFile(key).exists() || hostReady.putIfAbsent(key, batch) != null) continue;
+            CompletableFuture<Void> waiting = awaitingPrefetch.remove(key);
+            if (waiting != null) {
+                forward(batch, waiting);
+            }
+            StringBuilder commands = commandsByDir.computeIfAbsent(parentOf(video.getPath()), dir -> new StringBuilder());
+            appendPosterCommand(commands, VideoManager.convertToWslPath(video.getPath()), key);
+        }
+        if (commandsByDir.isEmpty()) {
+            return;
+        }
+
+        StringBuilder script = new StringBuilder();
+        for (Map.Entry<String, StringBuilder> entry : commandsByDir.entrySet()) {
+            String hostDir = shellQuote(VideoManager.convertToWslPath(entry.getKey() + "/" + HOST_DIR));
+            script.append("mkdir -p ").append(hostDir).append('\n');
+            script.append("if cd ").append(hostDir).append("; then\n");
+            script.append(entry.getValue()).append("fi\n");
+        }
+        // 脚本放在第一个视频目录里（已存在，不用先建目录），执行完自己删除
+        String scriptPath = commandsByDir.keySet().iterator().next()
+                + "/.autocut_thumbs_" + Long.toHexString(System.nanoTime()) + ".sh";
+        String wslScript = VideoManager.convertToWslPath(scriptPath);
+        script.append("rm -f ").append(shellQuote(wslScript)).append('\n');
+        sshManager.uploadContent(script.toString(), scriptPath, null)
+                .thenCompose(ignored -> sshManager.executeForOutputAsync("wsl -d Ubuntu2204 sh \"" + wslScript + "\""))
+                .whenComplete((output, error) -> {
+                    if (error != null) {
+                        // 失败的下次 prefetch 重新生成
+                        hostReady.values().removeIf(future -> future == batch);
+                        batch.completeExceptionally(error);
+                    } else {
+                        batch.complete(null);
+                    }
+                });
+    }
+
+    // 内存命中时同步回调并返回 null；否则在后台读磁盘或拉取，回调在主线程，取消后不再回调
+    public Request load(VideoFile video, Consumer<Bitmap> callback) {
+        String key = keyFor(video);
+        Bitmap cached = memory.get(key);
+        if (cached != null) {
+            callback.accept(cached);
+            return null;
+        }
+        Request request = new Request();
+        ioExecutor.execute(() -> {
+            if (request.cancelled) return;
+            if (!video.isRemote()) {
+                Bitmap bitmap = localIndex.loadThumbnail(video, request.signal);
+                if (bitmap != null) {
+                    memory.put(key, bitmap);
+                    post(bitmap, request, callback);
+                }
+                return;
+            }
+            File file = diskFile(key);
+            if (file.exists()) {
+                deliver(key, file, request, callback);
+                return;
+            }
+            CompletableFuture<Void> ready = hostReady.get(key);
+            // 还没经过 prefetch 的视频，主机上可能已有上次生成的封面，先直接尝试拉取，拉不到再等 prefetch
+            fetchFromHost(video, key, ready != null ? ready : CompletableFuture.completedFuture(null),
+                    ready == null, request, callback);
+        });
+        return request;
+    }
+
+    // ready 完成后从主机拉取封面；waitForPrefetch 时拉取失败后等之后的 prefetch 生成完再拉一次
+    private void fetchFromHost(VideoFile video, String key, CompletableFuture<Void> ready, boolean waitForPrefetch,
+                               Request request, Consumer<Bitmap> callback) {
+        String hostFile = parentOf(video.getPath()) + "/" + HOST_DIR + "/" + key + ".jpg";
+        File file = diskFile(key);
+        File tmp = new File(cacheDir, key + ".tmp");
+        ready.thenCompose(ignored -> request.cancelled
+                        ? CompletableFuture.<File>completedFuture(null)
+                        : sshManager.downloadFile(hostFile, tmp.getAbsolutePath(), null))
+                .whenCompleteAsync((downloaded, error) -> {
+                    if (downloaded != null && tmp.length() > 0 && tmp.renameTo(file)) {
+                        deliver(key, file, request, callback);
+                        return;
+                    }
+                    tmp.delete();
+                    if (waitForPrefetch && !request.cancelled) {
+                        fetchFromHost(video, key, awaitPrefetch(key), false, request, callback);
+                    }
+                    // 否则是主机生成失败或视频没有可解码的画面，保留占位图
+                }, ioExecutor);
+    }
+
+    // 先登记等待再检查 hostReady：prefetch 先登记 hostReady 再取走等待者，两边总有一边看到对方
+    private CompletableFuture<Void> awaitPrefetch(String key) {
+        CompletableFuture<Void> waiting = awaitingPrefetch.computeIfAbsent(key, k -> new CompletableFuture<>());
+        CompletableFuture<Void> batch = hostReady.get(key);
+        if (batch != null) {
+            awaitingPrefetch.remove(key, waiting);
+            forward(batch, waiting);
+        }
+        return waiting;
+    }
+
+    private static void forward(CompletableFuture<Void> batch, CompletableFuture<Void> waiting) {
+        batch.whenComplete((ignored, error) -> {
+            if (error != null) {
+                waiting.completeExceptionally(error);
+            } else {
+                waiting.complete(null);
+            }
+        });
+    }
+
+    private void deliver(String key, File file, Request request, Consumer<Bitmap> callback) {
+        if (request.cancelled) return;
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inPreferredConfig = Bitmap.Config.RGB_565;
+        Bitmap bitmap = BitmapFactory.decodeFile(file.getAbsolutePath(), options);
+        if (bitmap == null) {
+            file.delete();
+            return;
+        }
+        memory.put(key, bitmap);
+        // 更新修改时间，磁盘清理按最近使用淘汰
+        file.setLastModified(System.currentTimeMillis());
+        post(bitmap, request, callback);
+    }
+
+    private void post(Bitmap bitmap, Request request, Consumer<Bitmap> callback) {
+        mainHandler.post(() -> {
+            if (!request.cancelled) {
+                callback.accept(bitmap);
+            }
+        });
+    }
+
+    // -skip_frame nokey 只解码关键帧，取第 POSTER_SECONDS 秒附近的一帧；没有输出时退回第一帧
+    private static void appendPosterCommand(StringBuilder script, String wslVideo, String key) {
+        String input = shellQuote(wslVideo);
+        String output = key + ".jpg";
+        String common = "ffmpeg -hide_banner -nostdin -loglevel error -y -skip_frame nokey";
+        String tail = " -frames:v 1 -vf scale=" + THUMB_WIDTH + ":-2 -q:v 5 " + output;
+        script.append("[ -s ").append(output).append(" ] || ")
+                .append(common).append(" -ss ").append(POSTER_SECONDS).append(" -i ").append(input).append(tail)
+                .append('\n');
+        script.append("[ -s ").append(output).append(" ] || ")
+                .append(common).append(" -i ").append(input).append(tail).append(" || true\n");
+    }
+
+    private static String parentOf(String path) {
+        return path.substring(0, path.lastIndexOf('/'));
+    }
+
+    private static String shellQuote(String value) {
+        return "'" + value.replace("'", "'\\''") + "'";
+    }
+
+    private File diskFile(String key) {
+        cacheDir.mkdirs();
+        return new File(cacheDir, key + ".jpg");
+    }
+
+    // 超过上限时删除最久未用的文件
+    private void trimDisk() {
+        File[] files = cacheDir.listFiles();
+        if (files == null) return;
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= DISK_MAX_BYTES) return;
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : files) {
+            if (total <= DISK_MAX_BYTES * 3 / 4) break;
+            total -= file.length();
+            file.delete();
+        }
+    }
+
+    private static String keyFor(VideoFile video) {
+        String value = video.getPath() + "|" + video.getSize() + "|" + video.getLastModified();
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 10; i++) {
+                sb.append(String.format(Locale.US, "%02x", digest[i]));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(value.hashCode());
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.playerdemo.data.repository;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// 常驻在 WSL 上的 autocut 转写进程（脚本见 resources/autocut_worker.py）。
+// 第一次使用时上传脚本并启动，whisper 模型加载一次后持续接收请求；
+// 启动失败后一段时间内不再尝试，调用方回退到一次性的 autocut 命令。
+// 取消单个请求时只给进程发一条 cancel 消息，同一进程上的其他请求不受影响
+class TranscriptionWorker {
+    private static final String SCRIPT_RESOURCE = "/autocut_worker.py";
+    private static final String SCRIPT_NAME = ".autocut_worker.py";
+    private static final long READY_TIMEOUT_MS = 180000;
+    private static final long RETRY_AFTER_MS = 10 * 60 * 1000;
+    // 发出 cancel 后等待进程确认的时间；正在转写的文件要等 whisper 回到 Python 代码才能打断
+    private static final long CANCEL_GRACE_MS = 5000;
+
+    interface Listener {
+        void onLog(String line);
+        void onFileDone(String input);
+    }
+
+    private static class Request {
+        final Listener listener;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        String error;
+        // 请求行已经写给进程，取消时需要通知进程
+        volatile boolean sent;
+        volatile boolean cancelled;
+
+        Request(Listener listener) {
+            this.listener = listener;
+        }
+    }
+
+    private final SshManager sshManager;
+    private final String cliArgs;
+    private final ExecutorService startExecutor = Executors.newSingleThreadExecutor();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final Map<String, Request> pending = new ConcurrentHashMap<>();
+    private SshManager.InteractiveProcess process;
+    private RemoteJob processJob;
+    private CompletableFuture<SshManager.InteractiveProcess> starting;
+    private long lastFailureAt;
+
+    TranscriptionWorker(SshManager sshManager, String cliArgs) {
+        this.sshManager = sshManager;
+        this.cliArgs = cliArgs;
+    }
+
+    // inputs 为 WSL 路径；进程不可用或请求失败时 Future 以异常结束。
+    // 取消 job 只停止这一个请求，进程继续为其他请求服务
+    CompletableFuture<Void> transcribe(List<String> inputs, Listener listener, RemoteJob job) {
+        return start().thenCompose(proc -> {
+            String id = UUID.randomUUID().toString();
+            Request request = new Request(listener);
+            pending.put(id, request);
+            job.attach(() -> cancel(id, request, proc));
+            if (request.cancelled) {
+                return request.future;
+            }
+
+            JsonObject message = new JsonObject();
+            message.addProperty("id", id);
+            JsonArray array = new JsonArray();
+            for (String input : inputs) {
+                array.add(input);
+            }
+            message.add("inputs", array);
+            request.sent = true;
+            try {
+                proc.writeLine(message.toString());
+            } catch (IOException e) {
+                pending.remove(id);
+                proc.close();
+                request.future.completeExceptionally(e);
+            }
+            return request.future;
+        });
+    }
+
+    private void cancel(String id, Request request, SshManager.InteractiveProcess proc) {
+        request.cancelled = true;
+        request.future.completeExceptionally(new CancellationException("操作已取消"));
+        if (!request.sent) {
+            pending.remove(id);
+            return;
+        }
+        // cancel 常在界面线程调用，写通道可能阻塞，放到后台执行
+        scheduler.execute(() -> {
+            JsonObject message = new JsonObject();
+            message.addProperty("cancel", id);
+            try {
+                proc.writeLine(message.toString());
+            } catch (IOException e) {
+                // 进程已经不在了，读线程会结束所有请求
+                return;
+            }
+            // 进程迟迟没有确认时，只有在没有其他请求的情况下才结束整个进程释放显存
+            scheduler.schedule(() -> {
+                if (pending.containsKey(id) && pending.size() == 1) {
+                    shutdown();
+                }
+            }, CANCEL_GRACE_MS, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    synchronized void shutdown() {
+        if (processJob != null) {
+            processJob.cancel();
+            processJob = null;
+        }
+        process = null;
+    }
+
+    private synchronized CompletableFuture<SshManager.InteractiveProcess> start() {
+        if (process != null && process.isAlive()) {
+            return CompletableFuture.completedFuture(process);
+        }
+        if (starting != null) {
+            return starting;
+        }
+        if (System.currentTimeMillis() - lastFailureAt < RETRY_AFTER_MS) {
+            CompletableFuture<SshManager.InteractiveProcess> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IOException("转写进程暂不可用"));
+            return failed;
+        }
+
+        CompletableFuture<SshManager.InteractiveProcess> future = new CompletableFuture<>();
+        starting = future;
+        startExecutor.execute(() -> {
+            RemoteJob job = new RemoteJob(sshManager);
+            SshManager.InteractiveProcess proc = null;
+            try {
+                proc = launch(job);
+                synchronized (this) {
+                    process = proc;
+                    processJob = job;
+                    starting = null;
+                }
+                future.complete(proc);
+            } catch (Exception e) {
+                job.cancel();
+                synchronized (this) {
+                    starting = null;
+                    lastFailureAt = System.currentTimeMillis();
+                }
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    private SshManager.InteractiveProcess launch(RemoteJob job) throws Exception {
+        byte[] script = readScript();
+        String home = sshManager.withSftp(channel -> channel.getHome());
+        String remotePath = (home.endsWith("/") ? home : home + "/") + SCRIPT_NAME;
+        sshManager.withSftp(channel -> {
+            channel.put(new ByteArrayInputStream(script), remotePath);
+            return null;
+        });
+
+        SshManager.InteractiveProcess proc = sshManager.startInteractive(job.wrap(
+                "python3 -u \"" + VideoManager.convertToWslPath(remotePath) + "\" " + cliArgs));
+        job.attach(proc::close);
+        CompletableFuture<Void> ready = new CompletableFuture<>();
+        Thread reader = new Thread(() -> readEvents(proc, job, ready), "transcription-worker");
+        reader.setDaemon(true);
+        reader.start();
+
+        // 模型加载可能需要一两分钟
+        ready.get(READY_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        return proc;
+    }
+
+    private void readEvents(SshManager.InteractiveProcess proc, RemoteJob job, CompletableFuture<Void> ready) {
+        try {
+            String line;
+            while ((line = proc.readLine()) != null) {
+                if (!job.consumeMarker(line)) {
+                    handleEvent(line, ready);
+                }
+            }
+        } catch (IOException ignored) {
+            // 通道被关闭
+        } finally {
+            proc.close();
+            synchronized (this) {
+                if (process == proc) {
+                    process = null;
+                    processJob = null;
+                }
+            }
+            IOException exited = new IOException("转写进程已退出");
+            ready.completeExceptionally(exited);
+            for (String id : pending.keySet()) {
+                Request request = pending.remove(id);
+                if (request != null) {
+                    request.future.completeExceptionally(exited);
+                }
+            }
+        }
+    }
+
+    private void handleEvent(String line, CompletableFuture<Void> ready) {
+        JsonObject event;
+        try {
+            JsonElement element = JsonParser.parseString(line);
+            if (!element.isJsonObject()) return;
+            event = element.getAsJsonObject();
+        } catch (RuntimeException e) {
+            return;
+        }
+
+        String type = string(event, "event");
+        if ("ready".equals(type)) {
+            ready.complete(null);
+            return;
+        }
+        String id = string(event, "id");
+        Request request = id != null ? pending.get(id) : null;
+        if (request == null) return;
+        if (request.cancelled && !"finished".equals(type)) return;
+
+        if ("log".equals(type)) {
+            request.listener.onLog(string(event, "line"));
+        } else if ("done".equals(type)) {
+            request.listener.onFileDone(string(event, "input"));
+        } else if ("error".equals(type)) {
+            request.error = string(event, "message");
+            request.listener.onLog(string(event, "input") + ": " + request.error);
+        } else if ("finished".equals(type)) {
+            pending.remove(id);
+            JsonElement ok = event.get("ok");
+            if (ok != null && ok.getAsBoolean()) {
+                request.future.complete(null);
+            } else {
+                request.future.completeExceptionally(new IOException(
+                        request.error != null ? request.error : "转写失败"));
+            }
+        }
+    }
+
+    private static String string(JsonObject object, String key) {
+        JsonElement element = object.get(key);
+        return element != null && element.isJsonPrimitive() ? element.getAsString() : null;
+    }
+
+    private static byte[] readScript() throws IOException {
+        try (InputStream in = TranscriptionWorker.class.getResourceAsStream(SCRIPT_RESOURCE)) {
+            if (in == null) {
+                throw new IOException("缺少转写脚本 " + SCRIPT_RESOURCE);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+}
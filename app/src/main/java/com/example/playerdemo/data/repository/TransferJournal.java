@@ -0,0 +1,120 @@
+package com.example.playerdemo.data.repository;
+
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// 下载日志：与本地文件放在一起（xxx.mp4.journal），记录每个分段已落盘的偏移。
+// 只有在数据 force() 到磁盘之后才更新偏移，断线重连后从这里继续而不是从 0 开始。
+class TransferJournal {
+    private static final String SUFFIX = ".journal";
+    private static final Gson GSON = new Gson();
+
+    static class Segment {
+        long start;
+        long end;
+        long committed;
+
+        Segment(long start, long end) {
+            this.start = start;
+            this.end = end;
+            this.committed = start;
+        }
+
+        boolean isDone() {
+            return committed >= end;
+        }
+    }
+
+    private String remotePath;
+    private long remoteSize;
+    private long remoteMtime;
+    private List<Segment> segments = new ArrayList<>();
+
+    private transient File file;
+
+    static TransferJournal loadOrCreate(String localPath, String remotePath, long remoteSize,
+                                        long remoteMtime, int segmentCount) {
+        File journalFile = new File(localPath + SUFFIX);
+        File dataFile = new File(localPath);
+
+        TransferJournal journal = read(journalFile);
+        if (journal != null
+                && remotePath.equals(journal.remotePath)
+                && journal.remoteSize == remoteSize
+                && journal.remoteMtime == remoteMtime
+                && dataFile.length() == remoteSize
+                && !journal.segments.isEmpty()) {
+            journal.file = journalFile;
+            return journal;
+        }
+
+        // 远程文件变了或者日志损坏，重新规划分段
+        journal = new TransferJournal();
+        journal.file = journalFile;
+        journal.remotePath = remotePath;
+        journal.remoteSize = remoteSize;
+        journal.remoteMtime = remoteMtime;
+
+        long segmentSize = (remoteSize + segmentCount - 1) / Math.max(1, segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            long start = i * segmentSize;
+            long end = Math.min(remoteSize, start + segmentSize);
+            if (start >= end) break;
+            journal.segments.add(new Segment(start, end));
+        }
+        return journal;
+    }
+
+    List<Segment> getSegments() {
+        return segments;
+    }
+
+    long committedBytes() {
+        long total = 0;
+        for (Segment segment : segments) {
+            total += segment.committed - segment.start;
+        }
+        return total;
+    }
+
+    synchronized void commit(Segment segment, long offset) throws IOException {
+        segment.committed = offset;
+        save();
+    }
+
+    synchronized void save() throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+            GSON.toJson(this, writer);
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("无法写入下载日志: " + file.getPath());
+        }
+    }
+
+    void delete() {
+        file.delete();
+    }
+
+    private static TransferJournal read(File journalFile) {
+        if (!journalFile.exists()) {
+            return null;
+        }
+        try (Reader reader = new InputStreamReader(new FileInputStream(journalFile), StandardCharsets.UTF_8)) {
+            return GSON.fromJson(reader, TransferJournal.class);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
@@ -1,12 +1,15 @@
 package com.example.playerdemo.data.repository;
 
 import com.example.playerdemo.data.model.VideoFile;
-import com.jcraft.jsch.ChannelSftp;
-import com.jcraft.jsch.ChannelSftp.LsEntry;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 public class VideoManager {
     private static VideoManager instance;
@@ -15,6 +18,18 @@ public class VideoManager {
         "mp4", "mkv", "avi", "mov", "wmv", "flv", "webm", "m4v", "3gp"
     };
 
+    public static final Comparator<VideoFile> BY_NAME =
+        (a, b) -> a.getName().compareToIgnoreCase(b.getName());
+    // 视频路径本身的文件在前，子目录按路径排序，列表里同一目录的视频相邻
+    public static final Comparator<VideoFile> BY_FOLDER_THEN_NAME =
+        Comparator.comparing(VideoFile::getFolder, String.CASE_INSENSITIVE_ORDER).thenComparing(BY_NAME);
+    // 部分列表的最短回调间隔，避免目录每返回一批就重新计算一次列表差异
+    private static final long PARTIAL_INTERVAL_MS = 200;
+    // 没有目录快照时先列出的第一页大小
+    private static final int FIRST_PAGE_SIZE = 64;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
     private VideoManager() {
         this.sshManager = SshManager.getInstance();
     }
@@ -31,41 +46,126 @@ public class VideoManager {
         void onFailure(String error);
     }
 
+    public interface CatalogCallback {
+        void onCached(List<VideoFile> videos);
+        void onRevalidated(List<VideoFile> videos, RemoteCatalogCache.Delta delta);
+        void onFailure(String error);
+        // 目录还没列完时的中间结果，在 SSH 线程回调
+        default void onPartial(List<VideoFile> videos) {}
+        // 待列出的目录超过上限时跳过的子目录数，只在大于 0 时于 onRevalidated 之前回调
+        default void onSkippedDirs(int count) {}
+    }
+
     public void getRemoteVideos(String remotePath, VideoListCallback callback) {
-        new Thread(() -> {
-            try {
-                Vector<ChannelSftp.LsEntry> files = sshManager.listFiles(remotePath);
-                List<VideoFile> videos = new ArrayList<>();
-
-                if (files != null) {
-                    for (ChannelSftp.LsEntry entry : files) {
-                        String filename = entry.getFilename();
-                        if (!filename.startsWith(".") && isVideoFile(filename)) {
-                            long size = entry.getAttrs().getSize();
-                            String fullPath = remotePath.endsWith("/") 
-                                ? remotePath + filename 
-                                : remotePath + "/" + filename;
-                            VideoFile video = new VideoFile(
-                                filename,
-                                fullPath,
-                                size,
-                                "",
-                                true
-                            );
-                            videos.add(video);
-                        }
+        listRemoteVideos(remotePath, RemoteDirectoryWalker.Options.flat(), null, null).whenComplete((videos, error) -> {
+            if (callback == null) return;
+            if (error != null) {
+                callback.onFailure("获取视频列表失败: " + SshManager.describeError(error));
+            } else {
+                callback.onSuccess(videos);
+            }
+        });
+    }
+
+    // 先回调磁盘上的目录快照，再用目录 mtime 判断是否需要重新 ls；
+    // 需要时只把新增/删除/变化的条目作为 delta 交给界面。
+    // 递归列出时子目录的变化不会反映到根目录 mtime 上，每次都重新遍历；重新列出时通过 onPartial 分批回调。
+    // 没有快照时先列出 FIRST_PAGE_SIZE 个视频作为第一页交给 onPartial，再做完整遍历
+    public void getRemoteVideosCached(RemoteCatalogCache cache, String host, String remotePath,
+                                      RemoteDirectoryWalker.Options options, boolean forceRefresh,
+                                      CatalogCallback callback) {
+        // 不同层数和过滤规则的列表分开缓存，默认选项沿用原来的缓存文件
+        String cacheKey = options.getSignature().isEmpty() ? remotePath : remotePath + "|" + options.getSignature();
+        executor.execute(() -> {
+            RemoteCatalogCache.Snapshot snapshot = cache.load(host, cacheKey);
+            List<VideoFile> cachedVideos = snapshot != null ? snapshot.getVideos() : new ArrayList<>();
+            if (snapshot != null && callback != null) {
+                callback.onCached(new ArrayList<>(cachedVideos));
+            }
+
+            sshManager.statAsync(remotePath).whenComplete((attrs, statError) -> {
+                long dirMtime = statError == null ? attrs.getMTime() : -1;
+                // NTFS 上文件内容变化不会更新目录 mtime，所以手动刷新时强制重新列出
+                if (!forceRefresh && !options.isRecursive() && snapshot != null && statError == null
+                        && snapshot.getDirMtime() == dirMtime) {
+                    if (callback != null) {
+                        callback.onRevalidated(new ArrayList<>(cachedVideos), new RemoteCatalogCache.Delta());
                     }
+                    return;
                 }
 
-                if (callback != null) {
-                    callback.onSuccess(videos);
-                }
-            } catch (Exception e) {
-                if (callback != null) {
-                    callback.onFailure("获取视频列表失败: " + e.getMessage());
+                CompletableFuture<List<VideoFile>> firstPage = snapshot == null && callback != null
+                        ? listRemoteVideos(remotePath, options.withLimit(FIRST_PAGE_SIZE), null, null)
+                        : CompletableFuture.completedFuture(null);
+                firstPage.thenCompose(page -> {
+                    // 不足一页说明已经列完，不用再遍历一次
+                    if (page != null && page.size() < FIRST_PAGE_SIZE) {
+                        return CompletableFuture.completedFuture(page);
+                    }
+                    int shown = 0;
+                    if (page != null) {
+                        callback.onPartial(page);
+                        shown = page.size();
+                    }
+                    // 完整遍历的中间结果不比已显示的第一页多时不回调，列表不会先变短
+                    int minPartial = shown;
+                    return listRemoteVideos(remotePath, options, callback == null ? null : partial -> {
+                        if (partial.size() > minPartial) callback.onPartial(partial);
+                    }, callback == null ? null : callback::onSkippedDirs);
+                }).whenComplete((videos, error) -> {
+                    if (error != null) {
+                        if (callback != null) {
+                            callback.onFailure("获取视频列表失败: " + SshManager.describeError(error));
+                        }
+                        return;
+                    }
+
+                    RemoteCatalogCache.Delta delta = RemoteCatalogCache.diff(cachedVideos, videos);
+                    if (!delta.isEmpty() || snapshot == null || snapshot.getDirMtime() != dirMtime) {
+                        executor.execute(() -> cache.save(host, cacheKey, dirMtime, videos));
+                    }
+                    if (callback != null) {
+                        callback.onRevalidated(videos, delta);
+                    }
+                });
+            });
+        });
+    }
+
+    // 路径不存在等 SFTP 错误按空目录处理，只有连接层面的错误才算失败。
+    // onPartial 在遍历过程中收到按目录、名称排好序的已发现视频：第一批一到就回调，之后两次之间至少间隔 PARTIAL_INTERVAL_MS；
+    // 有目录因队列已满被跳过时，遍历结束后把跳过的数目交给 onSkipped
+    private CompletableFuture<List<VideoFile>> listRemoteVideos(String remotePath, RemoteDirectoryWalker.Options options,
+                                                                Consumer<List<VideoFile>> onPartial,
+                                                                IntConsumer onSkipped) {
+        List<VideoFile> found = new ArrayList<>();
+        long[] lastPartial = {0};
+        RemoteDirectoryWalker walker = new RemoteDirectoryWalker(sshManager, remotePath, options, (folder, videos) -> {
+            List<VideoFile> snapshot = null;
+            synchronized (found) {
+                found.addAll(videos);
+                long now = System.currentTimeMillis();
+                if (onPartial != null && now - lastPartial[0] >= PARTIAL_INTERVAL_MS) {
+                    lastPartial[0] = now;
+                    snapshot = new ArrayList<>(found);
                 }
             }
-        }).start();
+            if (snapshot != null) {
+                snapshot.sort(BY_FOLDER_THEN_NAME);
+                onPartial.accept(snapshot);
+            }
+        });
+        return walker.start().thenApply(skippedDirs -> {
+            if (onSkipped != null && skippedDirs > 0) {
+                onSkipped.accept(skippedDirs);
+            }
+            List<VideoFile> videos;
+            synchronized (found) {
+                videos = new ArrayList<>(found);
+            }
+            videos.sort(BY_FOLDER_THEN_NAME);
+            return videos;
+        });
     }
 
     public static String convertToWslPath(String windowsPath) {
@@ -89,7 +189,7 @@ public class VideoManager {
         return path;
     }
 
-    private boolean isVideoFile(String filename) {
+    static boolean isVideoFile(String filename) {
         String lower = filename.toLowerCase();
         for (String ext : VIDEO_EXTENSIONS) {
             if (lower.endsWith("." + ext)) {
@@ -0,0 +1,164 @@
+package com.example.playerdemo.ui.common;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.View;
+import android.widget.ScrollView;
+import android.widget.TextView;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// 命令输出日志：任意线程 append，只在内存里保留最近 maxLines 行（环形缓冲），
+// 最多每 100ms 把缓冲内容整体刷到 TextView 一次；连续的进度条刷新行合并成一行。
+// 完整日志另外写到磁盘文件，方便事后查看
+public class LogSink {
+    private static final long FLUSH_INTERVAL_MS = 100;
+    private static final int MAX_LOG_FILES = 20;
+
+    private final TextView view;
+    private final ScrollView scroller;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService diskExecutor = Executors.newSingleThreadExecutor();
+    private final Runnable flushTask = this::flush;
+    private final String[] ring;
+    private final File logFile;
+    private Writer writer;
+
+    private int head;
+    private int count;
+    private boolean lastTransient;
+    private boolean flushScheduled;
+    private long lastFlushAt;
+    private boolean closed;
+
+    public LogSink(TextView view, ScrollView scroller, File logDir, String name, int maxLines) {
+        this.view = view;
+        this.scroller = scroller;
+        this.ring = new String[Math.max(1, maxLines)];
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date());
+        this.logFile = new File(logDir, name + "-" + stamp + ".log");
+        diskExecutor.execute(() -> openWriter(logDir));
+    }
+
+    public File getLogFile() {
+        return logFile;
+    }
+
+    public void append(String line) {
+        if (line == null) return;
+        append(line, isTransient(line));
+    }
+
+    // transient 行（进度条、ffmpeg 统计行）会覆盖上一条同类行，而不是追加
+    public void append(String line, boolean transientLine) {
+        synchronized (this) {
+            if (closed) return;
+            if (transientLine && lastTransient && count > 0) {
+                ring[(head + count - 1) % ring.length] = line;
+            } else if (count < ring.length) {
+                ring[(head + count) % ring.length] = line;
+                count++;
+            } else {
+                ring[head] = line;
+                head = (head + 1) % ring.length;
+            }
+            lastTransient = transientLine;
+            scheduleFlush();
+            diskExecutor.execute(() -> write(line));
+        }
+    }
+
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            diskExecutor.execute(this::closeWriter);
+            diskExecutor.shutdown();
+        }
+        mainHandler.removeCallbacks(flushTask);
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled) return;
+        flushScheduled = true;
+        long delay = Math.max(0, FLUSH_INTERVAL_MS - (SystemClock.uptimeMillis() - lastFlushAt));
+        mainHandler.postDelayed(flushTask, delay);
+    }
+
+    private void flush() {
+        String text;
+        synchronized (this) {
+            flushScheduled = false;
+            lastFlushAt = SystemClock.uptimeMillis();
+            StringBuilder sb = new StringBuilder(count * 64);
+            for (int i = 0; i < count; i++) {
+                sb.append(ring[(head + i) % ring.length]).append('\n');
+            }
+            text = sb.toString();
+        }
+
+        // 只有用户停留在底部时才自动滚动，往上翻看时不打断
+        boolean atBottom = scroller == null
+                || scroller.getScrollY() + scroller.getHeight() >= view.getHeight() - view.getLineHeight();
+        view.setText(text);
+        if (atBottom && scroller != null) {
+            scroller.post(() -> scroller.fullScroll(View.FOCUS_DOWN));
+        }
+    }
+
+    private static boolean isTransient(String line) {
+        return line.contains("%|") || line.startsWith("frame=") || line.contains(" time=") && line.contains("speed=");
+    }
+
+    private void openWriter(File logDir) {
+        try {
+            logDir.mkdirs();
+            pruneOldLogs(logDir);
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(logFile), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            writer = null;
+        }
+    }
+
+    private void write(String line) {
+        if (writer == null) return;
+        try {
+            writer.write(line);
+            writer.write('\n');
+        } catch (IOException e) {
+            closeWriter();
+        }
+    }
+
+    private void closeWriter() {
+        if (writer == null) return;
+        try {
+            writer.close();
+        } catch (IOException ignored) {
+            // 日志写不完整不影响主流程
+        }
+        writer = null;
+    }
+
+    private static void pruneOldLogs(File logDir) {
+        File[] files = logDir.listFiles((dir, name) -> name.endsWith(".log"));
+        if (files == null || files.length < MAX_LOG_FILES) return;
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (int i = 0; i <= files.length - MAX_LOG_FILES; i++) {
+            files[i].delete();
+        }
+    }
+}
@@ -93,6 +93,9 @@ public class ConnectionSettingsActivity extends AppCompatActivity {
             binding.etPassword.setText(config.getPassword());
             binding.etVideoPath.setText(config.getVideoPath());
             binding.switchAutoReconnect.setChecked(config.isAutoReconnect());
+            binding.etScanDepth.setText(String.valueOf(config.getScanDepth()));
+            binding.etIncludeGlobs.setText(config.getIncludeGlobs());
+            binding.etExcludeGlobs.setText(config.getExcludeGlobs());
         }
     }
 
@@ -108,6 +111,14 @@ public class ConnectionSettingsActivity extends AppCompatActivity {
         config.setPassword(binding.etPassword.getText().toString().trim());
         config.setVideoPath(binding.etVideoPath.getText().toString().trim());
         config.setAutoReconnect(binding.switchAutoReconnect.isChecked());
+        try {
+            config.setScanDepth(Integer.parseInt(binding.etScanDepth.getText().toString().trim()));
+        } catch (NumberFormatException e) {
+            config.setScanDepth(0);
+        }
+        config.setIncludeGlobs(binding.etIncludeGlobs.getText().toString().trim());
+        config.setExcludeGlobs(binding.etExcludeGlobs.getText().toString().trim());
+        config.setEncodeProfile(configManager.getWslConfig().getEncodeProfile());
         
         configManager.saveWslConfig(config);
     }
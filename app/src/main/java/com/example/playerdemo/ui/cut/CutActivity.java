@@ -8,14 +8,27 @@ import android.widget.Toast;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.example.playerdemo.data.model.EncodeProfile;
+import com.example.playerdemo.data.model.MediaInfo;
+import com.example.playerdemo.data.model.WslConfig;
 import com.example.playerdemo.data.repository.AutoCutManager;
 import com.example.playerdemo.data.repository.ConfigManager;
+import com.example.playerdemo.data.repository.MediaProbeService;
+import com.example.playerdemo.data.repository.RemoteJob;
 import com.example.playerdemo.data.repository.SshManager;
 import com.example.playerdemo.databinding.ActivityCutBinding;
+import com.example.playerdemo.ui.common.LogSink;
 import com.example.playerdemo.ui.export.ExportActivity;
 import com.example.playerdemo.ui.player.VideoPlayerActivity;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
 public class CutActivity extends AppCompatActivity {
+    private static final int LOG_MAX_LINES = 500;
+
     private ActivityCutBinding binding;
     private SshManager sshManager;
     private AutoCutManager autoCutManager;
@@ -26,12 +39,15 @@ public class CutActivity extends AppCompatActivity {
     private String mdPath;
     private String outputPath;
     private boolean isCutting = false;
+    private LogSink logSink;
+    private volatile RemoteJob currentJob;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         binding = ActivityCutBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
+        logSink = new LogSink(binding.tvLog, binding.scrollLog, new File(getFilesDir(), "logs"), "cut", LOG_MAX_LINES);
 
         sshManager = SshManager.getInstance();
         autoCutManager = AutoCutManager.getInstance();
@@ -54,6 +70,8 @@ public class CutActivity extends AppCompatActivity {
         binding.btnCancel.setOnClickListener(v -> showCancelDialog());
         
         binding.btnRetry.setOnClickListener(v -> startCut());
+
+        binding.btnEncodeProfile.setOnClickListener(v -> showEncodeProfileDialog());
     }
 
     private void startCut() {
@@ -69,31 +87,47 @@ public class CutActivity extends AppCompatActivity {
         String outputDir = configManager.getWslConfig().getVideoPath();
         outputPath = outputDir + "/" + baseName + "_edited.mp4";
         
-        binding.tvLog.append("开始视频剪辑...\n");
-        binding.tvLog.append("视频路径: " + videoPath + "\n");
-        binding.tvLog.append("字幕文件: " + mdPath + "\n");
-        binding.tvLog.append("输出路径: " + outputPath + "\n");
-        
-        autoCutManager.cutVideo(videoPath, mdPath, outputPath, new AutoCutManager.CutCallback() {
+        logSink.append("开始视频剪辑...");
+        logSink.append("视频路径: " + videoPath);
+        MediaInfo mediaInfo = MediaProbeService.getInstance(this).getCached(videoPath);
+        if (mediaInfo != null && mediaInfo.getDurationMs() > 0) {
+            logSink.append("视频信息: " + mediaInfo.describe());
+        }
+        logSink.append("字幕文件: " + mdPath);
+        logSink.append("输出路径: " + outputPath);
+
+        autoCutManager.resolveEncodeProfile(configManager).whenComplete((profile, error) -> {
+            logSink.append("编码方式: " + (profile != null ? profile.getLabel() : "autocut 默认"));
+            if (isCutting) {
+                runCut(profile);
+            }
+        });
+    }
+
+    private void runCut(EncodeProfile profile) {
+        currentJob = autoCutManager.smartCutVideo(videoPath, mdPath, outputPath, profile, new AutoCutManager.CutCallback() {
             @Override
             public void onProgress(int progress, String message) {
+                // 已由 ProgressTracker 限频，每秒最多几次
                 runOnUiThread(() -> {
-                    if (progress > 0) {
-                        binding.progressBar.setProgress(progress);
-                    }
-                    if (message != null && !message.isEmpty()) {
-                        binding.tvLog.append(message + "\n");
-                        scrollToBottom();
-                    }
+                    binding.progressBar.setProgress(progress);
+                    binding.tvProgress.setText(message);
                 });
             }
 
+            @Override
+            public void onLog(String line) {
+                if (line == null || line.isEmpty()) return;
+                logSink.append(line);
+            }
+
             @Override
             public void onSuccess(String outputPath) {
                 runOnUiThread(() -> {
                     isCutting = false;
                     binding.progressBar.setProgress(100);
-                    binding.tvLog.append("\n剪辑完成！\n");
+                    logSink.append("剪辑完成！");
+                    logSink.append("完整日志: " + logSink.getLogFile());
                     updateUIState(false);
                     
                     navigateToExport(outputPath);
@@ -104,7 +138,8 @@ public class CutActivity extends AppCompatActivity {
             public void onFailure(String error) {
                 runOnUiThread(() -> {
                     isCutting = false;
-                    binding.tvLog.append("\n剪辑失败: " + error + "\n");
+                    logSink.append("剪辑失败: " + error);
+                    logSink.append("完整日志: " + logSink.getLogFile());
                     updateUIState(false);
                     showError(error);
                 });
@@ -117,20 +152,13 @@ public class CutActivity extends AppCompatActivity {
             binding.progressBar.setVisibility(View.VISIBLE);
             binding.btnCancel.setVisibility(View.VISIBLE);
             binding.btnRetry.setVisibility(View.GONE);
+            binding.btnEncodeProfile.setVisibility(View.GONE);
             binding.cardLog.setVisibility(View.VISIBLE);
         } else {
             binding.progressBar.setVisibility(View.GONE);
             binding.btnCancel.setVisibility(View.GONE);
             binding.btnRetry.setVisibility(View.VISIBLE);
-        }
-    }
-
-    private void scrollToBottom() {
-        int scrollAmount = binding.tvLog.getLayout().getLineTop(binding.tvLog.getLineCount()) - binding.tvLog.getHeight();
-        if (scrollAmount > 0) {
-            binding.tvLog.scrollTo(0, scrollAmount);
-        } else {
-            binding.tvLog.scrollTo(0, 0);
+            binding.btnEncodeProfile.setVisibility(View.VISIBLE);
         }
     }
 
@@ -139,7 +167,9 @@ public class CutActivity extends AppCompatActivity {
                 .setTitle("取消剪辑")
                 .setMessage("确定要取消视频剪辑吗？")
                 .setPositiveButton("确定", (dialog, which) -> {
-                    autoCutManager.cancelOperation();
+                    if (currentJob != null) {
+                        currentJob.cancel();
+                    }
                     isCutting = false;
                     finish();
                 })
@@ -147,6 +177,44 @@ public class CutActivity extends AppCompatActivity {
                 .show();
     }
 
+    // 只列出主机支持的编码方式，"重新检测" 在主机更换显卡或 ffmpeg 后使用
+    private void showEncodeProfileDialog() {
+        Set<EncodeProfile> available = configManager.getEncodeCapabilities();
+        List<EncodeProfile> options = new ArrayList<>();
+        for (EncodeProfile profile : EncodeProfile.values()) {
+            if (profile == EncodeProfile.AUTO || available == null || available.contains(profile)) {
+                options.add(profile);
+            }
+        }
+        String[] labels = new String[options.size()];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = options.get(i).getLabel();
+        }
+        WslConfig config = configManager.getWslConfig();
+        int checked = Math.max(0, options.indexOf(config.getEncodeProfile()));
+
+        new AlertDialog.Builder(this)
+                .setTitle("编码方式")
+                .setSingleChoiceItems(labels, checked, (dialog, which) -> {
+                    config.setEncodeProfile(options.get(which));
+                    configManager.saveWslConfig(config);
+                    dialog.dismiss();
+                })
+                .setNeutralButton("重新检测", (dialog, which) -> {
+                    configManager.clearEncodeCapabilities();
+                    autoCutManager.probeEncodeProfiles().whenComplete((profiles, error) -> runOnUiThread(() -> {
+                        if (profiles == null || profiles.size() <= 1) {
+                            Toast.makeText(this, "检测失败，请确认已连接", Toast.LENGTH_SHORT).show();
+                            return;
+                        }
+                        configManager.saveEncodeCapabilities(profiles);
+                        showEncodeProfileDialog();
+                    }));
+                })
+                .setNegativeButton("取消", null)
+                .show();
+    }
+
     private void showError(String error) {
         new AlertDialog.Builder(this)
                 .setTitle("错误")
@@ -166,6 +234,12 @@ public class CutActivity extends AppCompatActivity {
         }, 1500);
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        logSink.close();
+    }
+
     @Override
     public void onBackPressed() {
         if (isCutting) {
@@ -5,27 +5,38 @@ import android.os.Bundle;
 import android.view.View;
 import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 
 import com.example.playerdemo.data.model.SubtitleEntry;
+import com.example.playerdemo.data.model.SubtitleTimeIndex;
+import com.example.playerdemo.data.model.SubtitleTrack;
 import com.example.playerdemo.data.repository.AutoCutManager;
 import com.example.playerdemo.data.repository.ConfigManager;
 import com.example.playerdemo.data.repository.SshManager;
 import com.example.playerdemo.databinding.ActivityMdEditorBinding;
 import com.example.playerdemo.ui.cut.CutActivity;
 
-import java.util.ArrayList;
-import java.util.List;
-
 public class MdEditorActivity extends AppCompatActivity {
     private ActivityMdEditorBinding binding;
     private SshManager sshManager;
     private AutoCutManager autoCutManager;
     private ConfigManager configManager;
     private SubtitleAdapter adapter;
-    private List<SubtitleEntry> subtitleEntries = new ArrayList<>();
+    private final SubtitleTrack subtitleTrack = new SubtitleTrack();
+    private SubtitleTimeIndex timeIndex;
+
+    // 预览返回时带回播放位置，列表滚动到正在说的那一条
+    private final ActivityResultLauncher<Intent> previewLauncher = registerForActivityResult(
+            new ActivityResultContracts.StartActivityForResult(), result -> {
+                Intent data = result.getData();
+                if (result.getResultCode() == RESULT_OK && data != null) {
+                    scrollToPosition(data.getLongExtra("position_ms", -1));
+                }
+            });
     
     private String videoPath;
     private String videoName;
@@ -71,7 +82,7 @@ public class MdEditorActivity extends AppCompatActivity {
             @Override
             public void onToggleKeep(SubtitleEntry entry, boolean kept) {
                 entry.setKept(kept);
-                adapter.notifyDataSetChanged();
+                adapter.notifyKeepChanged(entry);
                 updateStats();
             }
 
@@ -88,6 +99,7 @@ public class MdEditorActivity extends AppCompatActivity {
 
         binding.recyclerView.setLayoutManager(new LinearLayoutManager(this));
         binding.recyclerView.setAdapter(adapter);
+        adapter.setTrack(subtitleTrack);
 
         binding.btnSelectAll.setOnClickListener(v -> selectAll(true));
         binding.btnDeselectAll.setOnClickListener(v -> selectAll(false));
@@ -98,47 +110,39 @@ public class MdEditorActivity extends AppCompatActivity {
 
     private void loadMdFile() {
         binding.progressBar.setVisibility(View.VISIBLE);
-        
-        new Thread(() -> {
-            String mdContent = sshManager.readRemoteFile(mdPath);
-            
-            runOnUiThread(() -> {
-                binding.progressBar.setVisibility(View.GONE);
-                
-                if (mdContent != null && !mdContent.isEmpty()) {
-                    subtitleEntries = autoCutManager.parseMdFile(mdContent);
-                    adapter.setSubtitles(subtitleEntries);
-                    updateStats();
-                } else {
-                    Toast.makeText(this, "无法读取md文件", Toast.LENGTH_SHORT).show();
-                    finish();
-                }
-            });
-        }).start();
+
+        // 每解析完一批就追加到列表，第一批到达时即可开始浏览
+        autoCutManager.loadMdFile(mdPath, batch -> runOnUiThread(() -> {
+            if (isFinishing()) return;
+            binding.progressBar.setVisibility(View.GONE);
+            subtitleTrack.addAll(batch);
+            adapter.notifyAppended(batch.size());
+            updateStats();
+        })).whenComplete((count, error) -> runOnUiThread(() -> {
+            binding.progressBar.setVisibility(View.GONE);
+
+            if (error != null || count == null || count == 0) {
+                Toast.makeText(this, "无法读取md文件", Toast.LENGTH_SHORT).show();
+                finish();
+            }
+        }));
     }
 
     private void updateStats() {
-        int total = subtitleEntries.size();
-        int kept = 0;
-        for (SubtitleEntry entry : subtitleEntries) {
-            if (entry.isKept()) kept++;
-        }
+        int total = subtitleTrack.size();
+        int kept = subtitleTrack.keptCount();
         binding.tvStats.setText(String.format("共 %d 条，保留 %d 条", total, kept));
     }
 
     private void selectAll(boolean select) {
-        for (SubtitleEntry entry : subtitleEntries) {
-            entry.setKept(select);
-        }
-        adapter.notifyDataSetChanged();
+        subtitleTrack.setAllKept(select);
+        adapter.notifyAllKeepChanged();
         updateStats();
     }
 
     private void reverseSelection() {
-        for (SubtitleEntry entry : subtitleEntries) {
-            entry.setKept(!entry.isKept());
-        }
-        adapter.notifyDataSetChanged();
+        subtitleTrack.invertKept();
+        adapter.notifyAllKeepChanged();
         updateStats();
     }
 
@@ -159,7 +163,7 @@ public class MdEditorActivity extends AppCompatActivity {
                         Toast.makeText(this, "字幕内容不能为空", Toast.LENGTH_SHORT).show();
                     } else {
                         entry.setContent(newContent);
-                        adapter.notifyDataSetChanged();
+                        adapter.notifyContentChanged(entry);
                     }
                 })
                 .setNegativeButton("取消", null)
@@ -170,21 +174,29 @@ public class MdEditorActivity extends AppCompatActivity {
         Intent intent = new Intent(this, com.example.playerdemo.ui.player.VideoPlayerActivity.class);
         intent.putExtra("video_path", videoPath);
         intent.putExtra("video_name", videoName);
-        intent.putExtra("start_time", entry.getStartTime());
+        intent.putExtra("start_ms", entry.getStartMs());
+        intent.putExtra("md_path", mdPath);
         intent.putExtra("is_remote", true);
-        startActivity(intent);
+        previewLauncher.launch(intent);
     }
 
-    private void saveAndContinue() {
-        boolean hasKeptEntries = false;
-        for (SubtitleEntry entry : subtitleEntries) {
-            if (entry.isKept()) {
-                hasKeptEntries = true;
-                break;
-            }
+    private void scrollToPosition(long positionMs) {
+        if (positionMs < 0 || subtitleTrack.isEmpty()) {
+            return;
         }
+        // 加载过程中 track 还在增长，条目数变化后重建索引
+        if (timeIndex == null || timeIndex.size() != subtitleTrack.size()) {
+            timeIndex = new SubtitleTimeIndex(subtitleTrack);
+        }
+        int index = timeIndex.find(positionMs);
+        if (index >= 0) {
+            LinearLayoutManager layoutManager = (LinearLayoutManager) binding.recyclerView.getLayoutManager();
+            layoutManager.scrollToPositionWithOffset(index, binding.recyclerView.getHeight() / 3);
+        }
+    }
 
-        if (!hasKeptEntries) {
+    private void saveAndContinue() {
+        if (subtitleTrack.nextKept(0) < 0) {
             new AlertDialog.Builder(this)
                     .setTitle("提示")
                     .setMessage("所有字幕都被删除，视频将为空。确定要继续吗？")
@@ -200,7 +212,7 @@ public class MdEditorActivity extends AppCompatActivity {
         binding.progressBar.setVisibility(View.VISIBLE);
         binding.btnSave.setEnabled(false);
         
-        String mdContent = autoCutManager.generateMdFile(subtitleEntries);
+        String mdContent = autoCutManager.generateMdFile(subtitleTrack);
         
         sshManager.uploadContent(mdContent, mdPath, new SshManager.ProgressCallback() {
             @Override
@@ -209,21 +221,18 @@ public class MdEditorActivity extends AppCompatActivity {
                     binding.progressBar.setProgress(progress);
                 });
             }
-        });
+        }).whenComplete((ignored, error) -> runOnUiThread(() -> {
+            binding.progressBar.setVisibility(View.GONE);
+            binding.btnSave.setEnabled(true);
 
-        new Thread(() -> {
-            try {
-                Thread.sleep(500);
-            } catch (InterruptedException ignored) {}
-            
-            runOnUiThread(() -> {
-                binding.progressBar.setVisibility(View.GONE);
-                binding.btnSave.setEnabled(true);
-                
-                Toast.makeText(this, "保存成功", Toast.LENGTH_SHORT).show();
-                navigateToCut();
-            });
-        }).start();
+            if (error != null) {
+                Toast.makeText(this, "保存失败: " + SshManager.describeError(error), Toast.LENGTH_LONG).show();
+                return;
+            }
+
+            Toast.makeText(this, "保存成功", Toast.LENGTH_SHORT).show();
+            navigateToCut();
+        }));
     }
 
     private void navigateToCut() {
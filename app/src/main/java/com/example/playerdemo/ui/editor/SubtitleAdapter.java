@@ -8,14 +8,20 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.playerdemo.data.model.SubtitleEntry;
+import com.example.playerdemo.data.model.SubtitleTrack;
 import com.example.playerdemo.databinding.ItemSubtitleBinding;
 
-import java.util.ArrayList;
 import java.util.List;
 
+// 直接从 SubtitleTrack 的列存储绑定，不再为每行保存一份条目对象；
+// 流式加载时按区间插入通知，不需要整表 diff
 public class SubtitleAdapter extends RecyclerView.Adapter<SubtitleAdapter.SubtitleViewHolder> {
-    private List<SubtitleEntry> subtitles = new ArrayList<>();
-    private OnSubtitleActionListener listener;
+    // 局部刷新：勾选状态只更新复选框和删除线，内容编辑只更新文字
+    static final Object PAYLOAD_KEEP = new Object();
+    static final Object PAYLOAD_CONTENT = new Object();
+
+    private final OnSubtitleActionListener listener;
+    private SubtitleTrack track = new SubtitleTrack();
 
     public interface OnSubtitleActionListener {
         void onToggleKeep(SubtitleEntry entry, boolean kept);
@@ -25,13 +31,42 @@ public class SubtitleAdapter extends RecyclerView.Adapter<SubtitleAdapter.Subtit
 
     public SubtitleAdapter(OnSubtitleActionListener listener) {
         this.listener = listener;
+        setHasStableIds(true);
     }
 
-    public void setSubtitles(List<SubtitleEntry> subtitles) {
-        this.subtitles = subtitles;
+    public void setTrack(SubtitleTrack track) {
+        this.track = track;
         notifyDataSetChanged();
     }
 
+    // track 末尾新追加了 count 条
+    public void notifyAppended(int count) {
+        notifyItemRangeInserted(track.size() - count, count);
+    }
+
+    // 条目在列表中的位置与 index 一致
+    public void notifyKeepChanged(SubtitleEntry entry) {
+        notifyItemChanged(entry.getIndex(), PAYLOAD_KEEP);
+    }
+
+    public void notifyAllKeepChanged() {
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_KEEP);
+    }
+
+    public void notifyContentChanged(SubtitleEntry entry) {
+        notifyItemChanged(entry.getIndex(), PAYLOAD_CONTENT);
+    }
+
+    @Override
+    public int getItemCount() {
+        return track.size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return position;
+    }
+
     @NonNull
     @Override
     public SubtitleViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -42,16 +77,27 @@ public class SubtitleAdapter extends RecyclerView.Adapter<SubtitleAdapter.Subtit
 
     @Override
     public void onBindViewHolder(@NonNull SubtitleViewHolder holder, int position) {
-        holder.bind(subtitles.get(position));
+        holder.bind(track.get(position));
     }
 
     @Override
-    public int getItemCount() {
-        return subtitles.size();
+    public void onBindViewHolder(@NonNull SubtitleViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            super.onBindViewHolder(holder, position, payloads);
+            return;
+        }
+        SubtitleEntry entry = track.get(position);
+        if (payloads.contains(PAYLOAD_CONTENT)) {
+            holder.bindContent(entry);
+        }
+        if (payloads.contains(PAYLOAD_KEEP)) {
+            holder.bindKeep(entry);
+        }
     }
 
     class SubtitleViewHolder extends RecyclerView.ViewHolder {
         private final ItemSubtitleBinding binding;
+        private final StringBuilder timeRange = new StringBuilder(32);
 
         SubtitleViewHolder(ItemSubtitleBinding binding) {
             super(binding.getRoot());
@@ -59,18 +105,44 @@ public class SubtitleAdapter extends RecyclerView.Adapter<SubtitleAdapter.Subtit
         }
 
         void bind(SubtitleEntry entry) {
-            binding.tvIndex.setText(String.valueOf(entry.getIndex() + 1));
-            binding.tvTimeRange.setText(entry.getStartTime() + " --> " + entry.getEndTime());
+            binding.tvIndex.setText(entry.getId());
+            timeRange.setLength(0);
+            SubtitleEntry.appendTimestamp(timeRange, entry.getStartMs());
+            timeRange.append(" --> ");
+            SubtitleEntry.appendTimestamp(timeRange, entry.getEndMs());
+            binding.tvTimeRange.setText(timeRange);
+            bindContent(entry);
+            bindKeep(entry);
+
+            binding.btnEdit.setOnClickListener(v -> {
+                if (listener != null) {
+                    listener.onEdit(entry);
+                }
+            });
+
+            binding.btnPreview.setOnClickListener(v -> {
+                if (listener != null) {
+                    listener.onPreview(entry);
+                }
+            });
+        }
+
+        void bindContent(SubtitleEntry entry) {
             binding.tvContent.setText(entry.getContent());
+        }
+
+        void bindKeep(SubtitleEntry entry) {
+            // 先摘掉监听再 setChecked，避免复用的 ViewHolder 把状态回写到上一个条目
+            binding.checkKeep.setOnCheckedChangeListener(null);
             binding.checkKeep.setChecked(entry.isKept());
 
+            int paintFlags = binding.tvContent.getPaintFlags();
             if (entry.isKept()) {
                 binding.tvContent.setAlpha(1.0f);
-                binding.tvContent.setPaintFlags(0);
+                binding.tvContent.setPaintFlags(paintFlags & ~Paint.STRIKE_THRU_TEXT_FLAG);
             } else {
                 binding.tvContent.setAlpha(0.5f);
-                binding.tvContent.setPaintFlags(
-                        binding.tvContent.getPaintFlags() | Paint.STRIKE_THRU_TEXT_FLAG);
+                binding.tvContent.setPaintFlags(paintFlags | Paint.STRIKE_THRU_TEXT_FLAG);
             }
 
             binding.checkKeep.setOnCheckedChangeListener((buttonView, isChecked) -> {
@@ -78,18 +150,6 @@ public class SubtitleAdapter extends RecyclerView.Adapter<SubtitleAdapter.Subtit
                     listener.onToggleKeep(entry, isChecked);
                 }
             });
-
-            binding.btnEdit.setOnClickListener(v -> {
-                if (listener != null) {
-                    listener.onEdit(entry);
-                }
-            });
-
-            binding.btnPreview.setOnClickListener(v -> {
-                if (listener != null) {
-                    listener.onPreview(entry);
-                }
-            });
         }
     }
 }
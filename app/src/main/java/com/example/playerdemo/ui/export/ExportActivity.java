@@ -16,6 +16,7 @@ import com.example.playerdemo.ui.main.MainActivity;
 import com.example.playerdemo.ui.player.VideoPlayerActivity;
 
 import java.io.File;
+import java.util.concurrent.CompletableFuture;
 
 public class ExportActivity extends AppCompatActivity {
     private ActivityExportBinding binding;
@@ -26,6 +27,7 @@ public class ExportActivity extends AppCompatActivity {
     private String videoName;
     private String outputPath;
     private boolean isExporting = false;
+    private CompletableFuture<File> exportFuture;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -93,7 +95,7 @@ public class ExportActivity extends AppCompatActivity {
         binding.tvLog.append("正在下载视频到本地...\n");
         binding.tvLog.append("目标路径: " + localPath + "\n");
         
-        sshManager.downloadFile(outputPath, localPath, new SshManager.ProgressCallback() {
+        exportFuture = sshManager.downloadFileParallel(outputPath, localPath, true, new SshManager.ProgressCallback() {
             @Override
             public void onProgress(int progress, String message) {
                 runOnUiThread(() -> {
@@ -105,22 +107,22 @@ public class ExportActivity extends AppCompatActivity {
             }
         });
 
-        new Thread(() -> {
-            try {
-                Thread.sleep(3000);
-            } catch (InterruptedException ignored) {}
+        exportFuture.whenComplete((file, error) -> runOnUiThread(() -> {
+            isExporting = false;
+            binding.progressBar.setVisibility(View.GONE);
+            binding.btnExport.setEnabled(true);
+
+            if (error != null) {
+                // 已下载的部分记录在日志里，再次点击导出会从断点继续
+                binding.tvLog.append("\n导出失败: " + SshManager.describeError(error) + "\n");
+                return;
+            }
+
+            binding.tvLog.append("\n导出完成！\n");
+            binding.tvLog.append("保存位置: " + localPath + "\n");
             
-            runOnUiThread(() -> {
-                isExporting = false;
-                binding.progressBar.setVisibility(View.GONE);
-                binding.btnExport.setEnabled(true);
-                
-                binding.tvLog.append("\n导出完成！\n");
-                binding.tvLog.append("保存位置: " + localPath + "\n");
-                
-                showExportCompleteDialog(localPath);
-            });
-        }).start();
+            showExportCompleteDialog(localPath);
+        }));
     }
 
     private void updateUIAfterExport() {
@@ -157,7 +159,12 @@ public class ExportActivity extends AppCompatActivity {
             new AlertDialog.Builder(this)
                     .setTitle("正在导出")
                     .setMessage("导出正在进行中，确定要返回吗？")
-                    .setPositiveButton("返回", (dialog, which) -> finish())
+                    .setPositiveButton("返回", (dialog, which) -> {
+                        if (exportFuture != null) {
+                            exportFuture.cancel(true);
+                        }
+                        finish();
+                    })
                     .setNegativeButton("继续", null)
                     .show();
         } else {
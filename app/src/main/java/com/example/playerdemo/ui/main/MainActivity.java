@@ -18,9 +18,17 @@ import androidx.core.content.ContextCompat;
 import androidx.recyclerview.widget.LinearLayoutManager;
 
 import com.example.playerdemo.R;
+import com.example.playerdemo.data.model.RecognitionJob;
 import com.example.playerdemo.data.model.VideoFile;
+import com.example.playerdemo.data.model.WslConfig;
 import com.example.playerdemo.data.repository.AutoCutManager;
 import com.example.playerdemo.data.repository.ConfigManager;
+import com.example.playerdemo.data.repository.LocalVideoIndex;
+import com.example.playerdemo.data.repository.RecognitionQueue;
+import com.example.playerdemo.data.repository.MediaProbeService;
+import com.example.playerdemo.data.repository.RemoteCatalogCache;
+import com.example.playerdemo.data.repository.RemoteDirectoryWalker;
+import com.example.playerdemo.data.repository.ThumbnailCache;
 import com.example.playerdemo.data.repository.SshManager;
 import com.example.playerdemo.data.repository.VideoManager;
 import com.example.playerdemo.databinding.ActivityMainBinding;
@@ -29,7 +37,6 @@ import com.example.playerdemo.ui.editor.MdEditorActivity;
 import com.example.playerdemo.ui.player.VideoPlayerActivity;
 import com.example.playerdemo.ui.recognition.RecognitionActivity;
 
-import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -39,6 +46,17 @@ public class MainActivity extends AppCompatActivity {
     private SshManager sshManager;
     private VideoManager videoManager;
     private VideoListAdapter adapter;
+    private RemoteCatalogCache catalogCache;
+    private MediaProbeService mediaProbe;
+    private LocalVideoIndex localIndex;
+    private RecognitionQueue recognitionQueue;
+    private List<RecognitionJob> queueSnapshot = new ArrayList<>();
+    private final RecognitionQueue.Listener queueListener = jobs -> runOnUiThread(() -> queueSnapshot = jobs);
+    // 媒体库变化时增量刷新本地列表
+    private final LocalVideoIndex.Listener localIndexListener = () -> {
+        if (showingLocalVideos) loadLocalVideos();
+    };
+    private boolean showingRemoteCatalog = false;
     private boolean showingLocalVideos = false;
     private boolean isConnecting = false;
 
@@ -60,9 +78,34 @@ public class MainActivity extends AppCompatActivity {
         configManager = ConfigManager.getInstance(this);
         sshManager = SshManager.getInstance();
         videoManager = VideoManager.getInstance();
+        catalogCache = RemoteCatalogCache.getInstance(this);
+        mediaProbe = MediaProbeService.getInstance(this);
+        localIndex = LocalVideoIndex.getInstance(this);
+        recognitionQueue = RecognitionQueue.getInstance(this);
 
         setupViews();
         checkAutoReconnect();
+        if (sshManager.isConnected()) {
+            recognitionQueue.resume();
+        }
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        recognitionQueue.addListener(queueListener);
+        localIndex.addListener(localIndexListener);
+        // 后台期间没有监听媒体库，回到前台时补一次增量刷新
+        if (showingLocalVideos) {
+            loadLocalVideos();
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        recognitionQueue.removeListener(queueListener);
+        localIndex.removeListener(localIndexListener);
     }
 
     @Override
@@ -90,13 +133,19 @@ public class MainActivity extends AppCompatActivity {
             public void onRecognizeClick(VideoFile video) {
                 startRecognition(video);
             }
-        });
+
+            @Override
+            public void onSelectionChanged(int selectedCount) {
+                updateSelectionToolbar(selectedCount);
+            }
+        }, ThumbnailCache.getInstance(this));
 
         binding.recyclerView.setLayoutManager(new LinearLayoutManager(this));
         binding.recyclerView.setAdapter(adapter);
 
         binding.chipRemote.setOnClickListener(v -> {
             showingLocalVideos = false;
+            showingRemoteCatalog = false;
             binding.chipRemote.setChecked(true);
             binding.chipLocal.setChecked(false);
             if (sshManager.isConnected()) {
@@ -107,7 +156,9 @@ public class MainActivity extends AppCompatActivity {
         });
 
         binding.chipLocal.setOnClickListener(v -> {
+            adapter.clearSelection();
             showingLocalVideos = true;
+            showingRemoteCatalog = false;
             binding.chipLocal.setChecked(true);
             binding.chipRemote.setChecked(false);
             checkStoragePermissionAndLoad();
@@ -128,7 +179,7 @@ public class MainActivity extends AppCompatActivity {
                 loadLocalVideos();
             } else {
                 if (sshManager.isConnected()) {
-                    loadRemoteVideos();
+                    loadRemoteVideos(true);
                 } else {
                     showNotConnectedTip();
                     binding.swipeRefresh.setRefreshing(false);
@@ -140,6 +191,12 @@ public class MainActivity extends AppCompatActivity {
             if (item.getItemId() == R.id.action_settings) {
                 openConnectionSettings();
                 return true;
+            } else if (item.getItemId() == R.id.action_enqueue) {
+                enqueueSelected();
+                return true;
+            } else if (item.getItemId() == R.id.action_queue) {
+                showQueueDialog();
+                return true;
             }
             return false;
         });
@@ -161,6 +218,7 @@ public class MainActivity extends AppCompatActivity {
                 runOnUiThread(() -> {
                     isConnecting = false;
                     updateConnectionStatus();
+                    recognitionQueue.resume();
                     if (!showingLocalVideos) {
                         loadRemoteVideos();
                     }
@@ -195,25 +253,70 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void loadRemoteVideos() {
-        binding.progressBar.setVisibility(View.VISIBLE);
+        loadRemoteVideos(false);
+    }
+
+    private void loadRemoteVideos(boolean forceRefresh) {
+        if (adapter.getItemCount() == 0) {
+            binding.progressBar.setVisibility(View.VISIBLE);
+        }
         binding.tvEmpty.setVisibility(View.GONE);
 
-        String videoPath = configManager.getWslConfig().getVideoPath();
-        videoManager.getRemoteVideos(videoPath, new VideoManager.VideoListCallback() {
+        WslConfig config = configManager.getWslConfig();
+        // 每个同时列出的目录占用一个 SFTP 通道，留一半会话给播放和识别
+        RemoteDirectoryWalker.Options options = new RemoteDirectoryWalker.Options(config.getScanDepth(),
+                RemoteDirectoryWalker.Options.splitGlobs(config.getIncludeGlobs()),
+                RemoteDirectoryWalker.Options.splitGlobs(config.getExcludeGlobs()),
+                Math.min(4, config.getMaxSessions() / 2));
+        videoManager.getRemoteVideosCached(catalogCache, config.getWindowsHost(), config.getVideoPath(),
+                options, forceRefresh, new VideoManager.CatalogCallback() {
+            @Override
+            public void onPartial(List<VideoFile> videos) {
+                runOnUiThread(() -> {
+                    // 已经显示缓存列表时不用部分结果覆盖，等遍历结束后按差异更新
+                    if (showingLocalVideos || showingRemoteCatalog) return;
+                    binding.progressBar.setVisibility(View.GONE);
+                    adapter.setVideos(mediaProbe.withDurations(videos));
+                    updateEmptyState(videos.isEmpty());
+                });
+            }
+
+            @Override
+            public void onSkippedDirs(int count) {
+                runOnUiThread(() -> Toast.makeText(MainActivity.this,
+                        "子目录过多，已跳过 " + count + " 个目录", Toast.LENGTH_LONG).show());
+            }
+
             @Override
-            public void onSuccess(List<VideoFile> videos) {
+            public void onCached(List<VideoFile> videos) {
                 runOnUiThread(() -> {
+                    if (showingLocalVideos) return;
+                    binding.progressBar.setVisibility(View.GONE);
+                    showingRemoteCatalog = true;
+                    adapter.setVideos(mediaProbe.fill(videos, null));
+                    updateEmptyState(videos.isEmpty());
+                });
+            }
+
+            @Override
+            public void onRevalidated(List<VideoFile> videos, RemoteCatalogCache.Delta delta) {
+                runOnUiThread(() -> {
+                    if (showingLocalVideos) return;
                     binding.progressBar.setVisibility(View.GONE);
                     binding.swipeRefresh.setRefreshing(false);
-                    
-                    if (videos.isEmpty()) {
-                        binding.tvEmpty.setText("未找到视频，请检查WSL路径");
-                        binding.tvEmpty.setVisibility(View.VISIBLE);
-                    } else {
-                        binding.tvEmpty.setVisibility(View.GONE);
+
+                    // 列表差异由 ListAdapter 在后台计算，只有变化的行会被重新绑定
+                    // 时长由一次 ffprobe 批量探测，结果回来后再局部刷新有变化的行
+                    List<VideoFile> filled = mediaProbe.fill(videos, updated -> runOnUiThread(() -> {
+                        if (!showingLocalVideos) adapter.setVideos(updated);
+                    }));
+                    if (!showingRemoteCatalog || !delta.isEmpty()) {
+                        adapter.setVideos(filled);
                     }
-                    
-                    adapter.setVideos(videos);
+                    // 校验后的列表是主机上的最新状态，此时让主机批量生成缺少的封面
+                    ThumbnailCache.getInstance(MainActivity.this).prefetch(videos);
+                    showingRemoteCatalog = true;
+                    updateEmptyState(videos.isEmpty());
                 });
             }
 
@@ -222,6 +325,11 @@ public class MainActivity extends AppCompatActivity {
                 runOnUiThread(() -> {
                     binding.progressBar.setVisibility(View.GONE);
                     binding.swipeRefresh.setRefreshing(false);
+                    if (adapter.getItemCount() > 0) {
+                        // 仍然展示缓存的列表，只提示校验失败
+                        Toast.makeText(MainActivity.this, "刷新失败，显示的是缓存列表", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
 //                    binding.tvEmpty.setText(error);
                     binding.tvEmpty.setText("连接失败，请检查连接");
                     binding.tvEmpty.setVisibility(View.VISIBLE);
@@ -230,6 +338,15 @@ public class MainActivity extends AppCompatActivity {
         });
     }
 
+    private void updateEmptyState(boolean empty) {
+        if (empty) {
+            binding.tvEmpty.setText("未找到视频，请检查WSL路径");
+            binding.tvEmpty.setVisibility(View.VISIBLE);
+        } else {
+            binding.tvEmpty.setVisibility(View.GONE);
+        }
+    }
+
     private void checkStoragePermissionAndLoad() {
         if (Environment.getExternalStorageState().equals(Environment.MEDIA_MOUNTED)) {
             if (ContextCompat.checkSelfPermission(this, 
@@ -245,62 +362,32 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    // 本地视频来自 MediaStore 索引，覆盖所有目录，时长和缩略图也由媒体库提供
     private void loadLocalVideos() {
-        binding.progressBar.setVisibility(View.VISIBLE);
+        if (adapter.getItemCount() == 0) {
+            binding.progressBar.setVisibility(View.VISIBLE);
+        }
         binding.tvEmpty.setVisibility(View.GONE);
 
-        new Thread(() -> {
-            List<VideoFile> localVideos = new ArrayList<>();
-            File dcim = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_MOVIES);
-            File downloads = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS);
-            
-            scanDirectory(dcim, localVideos);
-            scanDirectory(downloads, localVideos);
-
-            runOnUiThread(() -> {
-                binding.progressBar.setVisibility(View.GONE);
-                binding.swipeRefresh.setRefreshing(false);
-                
-                if (localVideos.isEmpty()) {
-                    binding.tvEmpty.setText("未找到本地视频");
-                    binding.tvEmpty.setVisibility(View.VISIBLE);
-                } else {
-                    binding.tvEmpty.setVisibility(View.GONE);
-                }
-                
-                adapter.setVideos(localVideos);
-            });
-        }).start();
-    }
+        localIndex.refresh().whenComplete((localVideos, error) -> runOnUiThread(() -> {
+            binding.progressBar.setVisibility(View.GONE);
+            binding.swipeRefresh.setRefreshing(false);
+            if (!showingLocalVideos) return;
 
-    private void scanDirectory(File dir, List<VideoFile> videos) {
-        if (dir != null && dir.exists() && dir.isDirectory()) {
-            File[] files = dir.listFiles();
-            if (files != null) {
-                for (File file : files) {
-                    if (file.isFile() && isVideoFile(file.getName())) {
-                        videos.add(new VideoFile(
-                                file.getName(),
-                                file.getAbsolutePath(),
-                                file.length(),
-                                "",
-                                false
-                        ));
-                    }
-                }
+            if (error != null) {
+                binding.tvEmpty.setText("读取本地视频失败");
+                binding.tvEmpty.setVisibility(View.VISIBLE);
+                return;
             }
-        }
-    }
-
-    private boolean isVideoFile(String filename) {
-        String[] extensions = {"mp4", "mkv", "avi", "mov", "wmv", "flv", "webm", "m4v", "3gp"};
-        String lower = filename.toLowerCase();
-        for (String ext : extensions) {
-            if (lower.endsWith("." + ext)) {
-                return true;
+            if (localVideos.isEmpty()) {
+                binding.tvEmpty.setText("未找到本地视频");
+                binding.tvEmpty.setVisibility(View.VISIBLE);
+            } else {
+                binding.tvEmpty.setVisibility(View.GONE);
             }
-        }
-        return false;
+
+            adapter.setVideos(localVideos);
+        }));
     }
 
     private void playVideo(VideoFile video) {
@@ -315,6 +402,74 @@ public class MainActivity extends AppCompatActivity {
         Intent intent = new Intent(this, RecognitionActivity.class);
         intent.putExtra("video_path", video.getPath());
         intent.putExtra("video_name", video.getName());
+        intent.putExtra("is_remote", video.isRemote());
+        startActivity(intent);
+    }
+
+    private void updateSelectionToolbar(int selectedCount) {
+        binding.toolbar.getMenu().findItem(R.id.action_enqueue).setVisible(selectedCount > 0);
+        binding.toolbar.setTitle(selectedCount > 0 ? "已选择 " + selectedCount + " 个视频" : "AutoCut 视频助手");
+    }
+
+    private void enqueueSelected() {
+        List<VideoFile> selected = adapter.getSelectedVideos();
+        if (selected.isEmpty()) return;
+        recognitionQueue.enqueue(selected);
+        adapter.clearSelection();
+        Toast.makeText(this, "已加入识别队列: " + selected.size() + " 个视频", Toast.LENGTH_SHORT).show();
+    }
+
+    private void showQueueDialog() {
+        if (queueSnapshot.isEmpty()) {
+            Toast.makeText(this, "识别队列为空", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        String[] items = new String[queueSnapshot.size()];
+        for (int i = 0; i < items.length; i++) {
+            RecognitionJob job = queueSnapshot.get(i);
+            String line = job.getVideoName() + "  [" + describeStatus(job) + "]";
+            items[i] = job.getError() != null ? line + "\n" + job.getError() : line;
+        }
+
+        new AlertDialog.Builder(this)
+                .setTitle("识别队列")
+                .setItems(items, (dialog, which) -> {
+                    RecognitionJob job = queueSnapshot.get(which);
+                    if (job.getStatus() == RecognitionJob.Status.DONE) {
+                        openEditor(job);
+                    } else if (job.isActive()) {
+                        confirmCancelJob(job);
+                    }
+                })
+                .setPositiveButton("重试失败", (dialog, which) -> recognitionQueue.retryFailed())
+                .setNeutralButton("清除已完成", (dialog, which) -> recognitionQueue.clearFinished())
+                .setNegativeButton("关闭", null)
+                .show();
+    }
+
+    private void confirmCancelJob(RecognitionJob job) {
+        new AlertDialog.Builder(this)
+                .setTitle("取消识别")
+                .setMessage("将 " + job.getVideoName() + " 移出识别队列？")
+                .setPositiveButton("移出", (dialog, which) -> recognitionQueue.cancel(job.getId()))
+                .setNegativeButton("保留", null)
+                .show();
+    }
+
+    private static String describeStatus(RecognitionJob job) {
+        switch (job.getStatus()) {
+            case RUNNING: return "识别中";
+            case DONE: return "已完成";
+            case FAILED: return "失败";
+            default: return job.getAttempts() > 0 ? "等待重试" : "等待中";
+        }
+    }
+
+    private void openEditor(RecognitionJob job) {
+        Intent intent = new Intent(this, MdEditorActivity.class);
+        intent.putExtra("video_path", job.getVideoPath());
+        intent.putExtra("video_name", job.getVideoName());
+        intent.putExtra("md_path", job.getMdPath());
         startActivity(intent);
     }
 
@@ -344,6 +499,7 @@ public class MainActivity extends AppCompatActivity {
                     sshManager.disconnect();
                     updateConnectionStatus();
                     adapter.clearVideos();
+                    showingRemoteCatalog = false;
                 })
                 .setNegativeButton("取消", null)
                 .show();
@@ -371,6 +527,15 @@ public class MainActivity extends AppCompatActivity {
         binding.tvEmpty.setVisibility(View.VISIBLE);
     }
 
+    @Override
+    public void onBackPressed() {
+        if (adapter.isSelectionMode()) {
+            adapter.clearSelection();
+        } else {
+            super.onBackPressed();
+        }
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
@@ -1,38 +1,136 @@
 package com.example.playerdemo.ui.main;
 
+import android.content.res.ColorStateList;
+import android.graphics.Bitmap;
 import android.view.LayoutInflater;
 import android.view.ViewGroup;
+import android.widget.ImageView;
 
 import androidx.annotation.NonNull;
+import androidx.core.widget.ImageViewCompat;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.example.playerdemo.R;
 import com.example.playerdemo.data.model.VideoFile;
+import com.example.playerdemo.data.repository.ThumbnailCache;
 import com.example.playerdemo.databinding.ItemVideoBinding;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
-public class VideoListAdapter extends RecyclerView.Adapter<VideoListAdapter.VideoViewHolder> {
-    private List<VideoFile> videos = new ArrayList<>();
-    private OnVideoClickListener listener;
+public class VideoListAdapter extends ListAdapter<VideoFile, VideoListAdapter.VideoViewHolder> {
+    // 只有大小/时长/修改时间变化时，局部刷新这一行的文字，不重新绑定按钮
+    static final Object PAYLOAD_META = new Object();
+    static final Object PAYLOAD_SELECTION = new Object();
+    // 目录标题只取决于相邻行，列表变化后重新判断
+    static final Object PAYLOAD_HEADER = new Object();
+
+    private static final DiffUtil.ItemCallback<VideoFile> DIFF_CALLBACK = new DiffUtil.ItemCallback<VideoFile>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull VideoFile oldItem, @NonNull VideoFile newItem) {
+            return oldItem.getPath().equals(newItem.getPath());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull VideoFile oldItem, @NonNull VideoFile newItem) {
+            return sameIdentity(oldItem, newItem) && sameMeta(oldItem, newItem);
+        }
+
+        @Override
+        public Object getChangePayload(@NonNull VideoFile oldItem, @NonNull VideoFile newItem) {
+            return sameIdentity(oldItem, newItem) ? PAYLOAD_META : null;
+        }
+    };
+
+    private final OnVideoClickListener listener;
+    private final ThumbnailCache thumbnailCache;
+    private final Map<String, Long> stableIds = new HashMap<>();
+    // 多选状态按路径记录，后台刷新替换列表对象后选择不会丢失
+    private final Set<String> selectedPaths = new LinkedHashSet<>();
+    private boolean selectionMode = false;
 
     public interface OnVideoClickListener {
         void onPlayClick(VideoFile video);
         void onRecognizeClick(VideoFile video);
+        void onSelectionChanged(int selectedCount);
     }
 
-    public VideoListAdapter(OnVideoClickListener listener) {
+    public VideoListAdapter(OnVideoClickListener listener, ThumbnailCache thumbnailCache) {
+        super(DIFF_CALLBACK);
         this.listener = listener;
+        this.thumbnailCache = thumbnailCache;
+        setHasStableIds(true);
     }
 
+    // 差异在后台线程计算，完成后只通知真正变化的行
     public void setVideos(List<VideoFile> videos) {
-        this.videos = videos;
-        notifyDataSetChanged();
+        submitList(new ArrayList<>(videos));
+    }
+
+    // 插入或删除行后，相邻行的目录标题可能要出现或隐藏
+    @Override
+    public void onCurrentListChanged(@NonNull List<VideoFile> previousList, @NonNull List<VideoFile> currentList) {
+        if (!previousList.isEmpty() && !currentList.isEmpty()) {
+            notifyItemRangeChanged(0, currentList.size(), PAYLOAD_HEADER);
+        }
     }
 
     public void clearVideos() {
-        this.videos.clear();
-        notifyDataSetChanged();
+        submitList(new ArrayList<>());
+    }
+
+    public boolean isSelectionMode() {
+        return selectionMode;
+    }
+
+    public List<VideoFile> getSelectedVideos() {
+        List<VideoFile> selected = new ArrayList<>();
+        for (VideoFile video : getCurrentList()) {
+            if (selectedPaths.contains(video.getPath())) {
+                selected.add(video);
+            }
+        }
+        return selected;
+    }
+
+    public void clearSelection() {
+        selectionMode = false;
+        selectedPaths.clear();
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_SELECTION);
+        if (listener != null) {
+            listener.onSelectionChanged(0);
+        }
+    }
+
+    private void toggleSelection(int position) {
+        if (position == RecyclerView.NO_POSITION) return;
+        String path = getItem(position).getPath();
+        if (!selectedPaths.remove(path)) {
+            selectedPaths.add(path);
+        }
+        selectionMode = !selectedPaths.isEmpty();
+        notifyItemChanged(position, PAYLOAD_SELECTION);
+        if (listener != null) {
+            listener.onSelectionChanged(selectedPaths.size());
+        }
+    }
+
+    @Override
+    public long getItemId(int position) {
+        String path = getItem(position).getPath();
+        Long id = stableIds.get(path);
+        if (id == null) {
+            id = (long) stableIds.size();
+            stableIds.put(path, id);
+        }
+        return id;
     }
 
     @NonNull
@@ -45,26 +143,86 @@ public class VideoListAdapter extends RecyclerView.Adapter<VideoListAdapter.Vide
 
     @Override
     public void onBindViewHolder(@NonNull VideoViewHolder holder, int position) {
-        holder.bind(videos.get(position));
+        holder.bind(getItem(position));
+        holder.bindHeader(position);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull VideoViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            super.onBindViewHolder(holder, position, payloads);
+            return;
+        }
+        VideoFile video = getItem(position);
+        if (payloads.contains(PAYLOAD_META)) {
+            holder.bindMeta(video);
+            // 大小或修改时间变化意味着封面的缓存键变了
+            holder.bindThumbnail(video);
+        }
+        if (payloads.contains(PAYLOAD_SELECTION)) {
+            holder.bindSelection(video);
+        }
+        if (payloads.contains(PAYLOAD_HEADER)) {
+            holder.bindHeader(position);
+        }
+    }
+
+    // 列表按目录排序，每个子目录的第一行显示目录名；视频路径本身的文件不加标题
+    private boolean startsFolder(int position) {
+        String folder = getItem(position).getFolder();
+        if (position == 0) {
+            return !folder.isEmpty();
+        }
+        return !folder.equals(getItem(position - 1).getFolder());
     }
 
+    // 滚出屏幕的行取消尚未完成的封面加载
     @Override
-    public int getItemCount() {
-        return videos.size();
+    public void onViewRecycled(@NonNull VideoViewHolder holder) {
+        holder.cancelThumbnail();
+    }
+
+    private static boolean sameIdentity(VideoFile a, VideoFile b) {
+        return Objects.equals(a.getName(), b.getName())
+                && a.isRemote() == b.isRemote()
+                && a.isSelected() == b.isSelected();
+    }
+
+    private static boolean sameMeta(VideoFile a, VideoFile b) {
+        return a.getSize() == b.getSize()
+                && a.getLastModified() == b.getLastModified()
+                && Objects.equals(a.getDuration(), b.getDuration());
     }
 
     class VideoViewHolder extends RecyclerView.ViewHolder {
         private final ItemVideoBinding binding;
+        // 占位图标的着色，显示封面时要去掉
+        private final ColorStateList iconTint;
+        private ThumbnailCache.Request thumbnailRequest;
 
         VideoViewHolder(ItemVideoBinding binding) {
             super(binding.getRoot());
             this.binding = binding;
+            this.iconTint = ImageViewCompat.getImageTintList(binding.ivThumbnail);
         }
 
         void bind(VideoFile video) {
             binding.tvVideoName.setText(video.getName());
-            binding.tvVideoSize.setText(video.getFormattedSize());
-            binding.tvVideoDuration.setText(video.getDuration());
+            bindMeta(video);
+            bindThumbnail(video);
+            bindSelection(video);
+
+            // 长按远程视频进入多选，多选时单击切换选中
+            binding.cardVideo.setOnLongClickListener(v -> {
+                if (!video.isRemote()) return false;
+                toggleSelection(getBindingAdapterPosition());
+                return true;
+            });
+            binding.cardVideo.setOnClickListener(v -> {
+                if (selectionMode && video.isRemote()) {
+                    toggleSelection(getBindingAdapterPosition());
+                }
+            });
 
             if (video.isRemote()) {
                 binding.chipRemote.setVisibility(android.view.View.VISIBLE);
@@ -90,5 +248,50 @@ public class VideoListAdapter extends RecyclerView.Adapter<VideoListAdapter.Vide
                 binding.btnRecognize.setVisibility(android.view.View.VISIBLE);
             }
         }
+
+        void bindSelection(VideoFile video) {
+            binding.cardVideo.setChecked(selectedPaths.contains(video.getPath()));
+        }
+
+        void bindHeader(int position) {
+            if (position == RecyclerView.NO_POSITION || !startsFolder(position)) {
+                binding.tvFolderHeader.setVisibility(android.view.View.GONE);
+                return;
+            }
+            binding.tvFolderHeader.setText(getItem(position).getFolder());
+            binding.tvFolderHeader.setVisibility(android.view.View.VISIBLE);
+        }
+
+        void bindThumbnail(VideoFile video) {
+            cancelThumbnail();
+            showPlaceholder();
+            if (thumbnailCache == null) return;
+            thumbnailRequest = thumbnailCache.load(video, this::showThumbnail);
+        }
+
+        void cancelThumbnail() {
+            if (thumbnailRequest != null) {
+                thumbnailRequest.cancel();
+                thumbnailRequest = null;
+            }
+        }
+
+        private void showPlaceholder() {
+            binding.ivThumbnail.setScaleType(ImageView.ScaleType.CENTER_INSIDE);
+            binding.ivThumbnail.setImageResource(R.drawable.ic_video);
+            ImageViewCompat.setImageTintList(binding.ivThumbnail, iconTint);
+        }
+
+        private void showThumbnail(Bitmap bitmap) {
+            thumbnailRequest = null;
+            ImageViewCompat.setImageTintList(binding.ivThumbnail, null);
+            binding.ivThumbnail.setScaleType(ImageView.ScaleType.CENTER_CROP);
+            binding.ivThumbnail.setImageBitmap(bitmap);
+        }
+
+        void bindMeta(VideoFile video) {
+            binding.tvVideoSize.setText(video.getFormattedSize());
+            binding.tvVideoDuration.setText(video.getDuration());
+        }
     }
 }
@@ -1,9 +1,12 @@
 package com.example.playerdemo.ui.player;
 
+import android.content.Intent;
 import android.content.pm.ActivityInfo;
 import android.content.res.Configuration;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.View;
 import android.view.WindowManager;
 import android.widget.Toast;
@@ -12,13 +15,22 @@ import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.example.playerdemo.data.model.SubtitleEntry;
+import com.example.playerdemo.data.model.SubtitleTimeIndex;
+import com.example.playerdemo.data.model.SubtitleTrack;
+import com.example.playerdemo.data.repository.AutoCutManager;
+import com.example.playerdemo.data.repository.SftpDataSource;
 import com.example.playerdemo.data.repository.SshManager;
-import com.example.playerdemo.data.repository.VideoManager;
 import com.example.playerdemo.databinding.ActivityVideoPlayerBinding;
 import com.google.android.exoplayer2.ExoPlayer;
 import com.google.android.exoplayer2.MediaItem;
+import com.google.android.exoplayer2.PlaybackException;
 import com.google.android.exoplayer2.PlaybackParameters;
 import com.google.android.exoplayer2.Player;
+import com.google.android.exoplayer2.source.MediaSource;
+import com.google.android.exoplayer2.source.ProgressiveMediaSource;
+
+import java.util.concurrent.CompletableFuture;
 
 public class VideoPlayerActivity extends AppCompatActivity {
     private ActivityVideoPlayerBinding binding;
@@ -27,9 +39,20 @@ public class VideoPlayerActivity extends AppCompatActivity {
     private String videoPath;
     private String videoName;
     private boolean isRemote;
-    private String startTime;
+    private long startPositionMs = -1;
     private float currentPlaybackSpeed = 1.0f;
     private boolean isFullScreen = false;
+    private CompletableFuture<java.io.File> downloadFuture;
+
+    // 字幕叠加：按下一次字幕切换的时间点安排刷新，不在每帧做线性扫描
+    private static final long SUBTITLE_TICK_MIN_MS = 20;
+    private static final long SUBTITLE_TICK_MAX_MS = 500;
+    private final Handler subtitleHandler = new Handler(Looper.getMainLooper());
+    private final Runnable subtitleTicker = this::updateSubtitleOverlay;
+    private CompletableFuture<Integer> subtitleFuture;
+    private SubtitleTrack subtitleTrack;
+    private SubtitleTimeIndex subtitleIndex;
+    private int shownSubtitle = -1;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -40,10 +63,15 @@ public class VideoPlayerActivity extends AppCompatActivity {
         videoPath = getIntent().getStringExtra("video_path");
         videoName = getIntent().getStringExtra("video_name");
         isRemote = getIntent().getBooleanExtra("is_remote", false);
-        startTime = getIntent().getStringExtra("start_time");
+        startPositionMs = getIntent().getLongExtra("start_ms", -1);
+        String startTime = getIntent().getStringExtra("start_time");
+        if (startPositionMs < 0 && startTime != null) {
+            startPositionMs = SubtitleEntry.parseTimestamp(startTime, 0);
+        }
 
         setupViews();
         initializePlayer();
+        loadSubtitles(getIntent().getStringExtra("md_path"));
     }
 
     private void setupViews() {
@@ -80,12 +108,27 @@ public class VideoPlayerActivity extends AppCompatActivity {
                 }
             }
 
+            @Override
+            public void onPlayerError(@NonNull PlaybackException error) {
+                binding.progressBar.setVisibility(View.GONE);
+                if (isRemote) {
+                    showStreamErrorDialog(error.getMessage());
+                }
+            }
+
             @Override
             public void onIsPlayingChanged(boolean isPlaying) {
                 if (isPlaying) {
                     binding.btnSpeed.setVisibility(View.VISIBLE);
                     binding.btnFullscreen.setVisibility(View.VISIBLE);
                 }
+                updateSubtitleOverlay();
+            }
+
+            @Override
+            public void onPositionDiscontinuity(@NonNull Player.PositionInfo oldPosition,
+                                                @NonNull Player.PositionInfo newPosition, int reason) {
+                updateSubtitleOverlay();
             }
         });
 
@@ -101,12 +144,32 @@ public class VideoPlayerActivity extends AppCompatActivity {
             loadLocalVideo();
             return;
         }
-        
+
         SshManager sshManager = SshManager.getInstance();
-        
+        if (!sshManager.isConnected()) {
+            Toast.makeText(this, "未连接到服务器", Toast.LENGTH_SHORT).show();
+            finish();
+            return;
+        }
+
+        binding.progressBar.setVisibility(View.VISIBLE);
+
+        MediaSource mediaSource = new ProgressiveMediaSource.Factory(new SftpDataSource.Factory(sshManager))
+                .createMediaSource(MediaItem.fromUri(SftpDataSource.buildUri(videoPath)));
+        player.setMediaSource(mediaSource);
+        player.prepare();
+
+        if (startPositionMs >= 0) {
+            player.seekTo(startPositionMs);
+        }
+
+        player.play();
+    }
+
+    private void showStreamErrorDialog(String error) {
         android.app.AlertDialog.Builder builder = new android.app.AlertDialog.Builder(this);
-        builder.setTitle("远程播放提示");
-        builder.setMessage("远程视频需要先下载到本地，是否下载？\n\n文件路径: " + videoPath);
+        builder.setTitle("远程播放失败");
+        builder.setMessage("在线播放出错: " + error + "\n\n是否先下载到本地再播放？\n\n文件路径: " + videoPath);
         builder.setPositiveButton("下载并播放", (dialog, which) -> {
             downloadAndPlay(videoPath);
         });
@@ -117,34 +180,31 @@ public class VideoPlayerActivity extends AppCompatActivity {
     private void downloadAndPlay(String remotePath) {
         binding.progressBar.setVisibility(View.VISIBLE);
         
-        new Thread(() -> {
-            SshManager sshManager = SshManager.getInstance();
-            java.io.File cacheDir = getCacheDir();
-            java.io.File tempFile = new java.io.File(cacheDir, videoName);
-            
-            String wslPath = VideoManager.convertToWslPath(remotePath);
-            
-            sshManager.downloadFile(wslPath, tempFile.getAbsolutePath(), new SshManager.ProgressCallback() {
-                @Override
-                public void onProgress(int progress, String message) {
-                    runOnUiThread(() -> {
-                        binding.progressBar.setProgress(progress);
-                    });
-                }
-            });
-            
-            try {
-                Thread.sleep(2000);
-            } catch (InterruptedException ignored) {}
-            
-            final java.io.File finalFile = tempFile;
-            runOnUiThread(() -> {
-                binding.progressBar.setVisibility(View.GONE);
-                videoPath = finalFile.getAbsolutePath();
-                isRemote = false;
-                loadLocalVideo();
-            });
-        }).start();
+        SshManager sshManager = SshManager.getInstance();
+        java.io.File tempFile = new java.io.File(getCacheDir(), videoName);
+        
+        downloadFuture = sshManager.downloadFileParallel(remotePath, tempFile.getAbsolutePath(), new SshManager.ProgressCallback() {
+            @Override
+            public void onProgress(int progress, String message) {
+                runOnUiThread(() -> {
+                    binding.progressBar.setProgress(progress);
+                });
+            }
+        });
+
+        downloadFuture.whenComplete((file, error) -> runOnUiThread(() -> {
+            if (player == null) {
+                return;
+            }
+            binding.progressBar.setVisibility(View.GONE);
+            if (error != null) {
+                Toast.makeText(this, "下载失败: " + SshManager.describeError(error), Toast.LENGTH_LONG).show();
+                return;
+            }
+            videoPath = file.getAbsolutePath();
+            isRemote = false;
+            loadLocalVideo();
+        }));
     }
 
     private void loadLocalVideo() {
@@ -152,26 +212,88 @@ public class VideoPlayerActivity extends AppCompatActivity {
         player.setMediaItem(mediaItem);
         player.prepare();
         
-        if (startTime != null && !startTime.isEmpty()) {
-            seekToTime(startTime);
+        if (startPositionMs >= 0) {
+            player.seekTo(startPositionMs);
         }
         
         player.play();
     }
 
-    private void seekToTime(String timeStr) {
-        try {
-            String[] parts = timeStr.split(":");
-            int hours = Integer.parseInt(parts[0]);
-            int minutes = Integer.parseInt(parts[1]);
-            String secPart = parts[2].split("\\.")[0];
-            int seconds = Integer.parseInt(secPart);
-            
-            long positionMs = (hours * 3600 + minutes * 60 + seconds) * 1000L;
-            player.seekTo(positionMs);
-        } catch (Exception e) {
-            // Ignore seek error
+    // 远程视频默认使用同名 md 字幕，本地视频使用应用目录里识别出的字幕；没有字幕文件时不显示叠加层
+    private void loadSubtitles(String mdPath) {
+        if (mdPath == null && isRemote && videoPath != null) {
+            int lastDot = videoPath.lastIndexOf('.');
+            mdPath = (lastDot > 0 ? videoPath.substring(0, lastDot) : videoPath) + ".md";
+        }
+        if (mdPath == null && !isRemote && videoPath != null) {
+            java.io.File transcript = AutoCutManager.localMdFileFor(getFilesDir(), new java.io.File(videoPath));
+            if (transcript.isFile()) {
+                mdPath = transcript.getAbsolutePath();
+            }
         }
+        boolean localMd = !isRemote && mdPath != null;
+        if (mdPath == null || (!localMd && !SshManager.getInstance().isConnected())) {
+            return;
+        }
+
+        // 解析线程独占这个 track，完成后才交给 UI 线程
+        SubtitleTrack track = new SubtitleTrack();
+        subtitleFuture = localMd
+                ? AutoCutManager.getInstance().loadLocalMdFile(new java.io.File(mdPath), track::addAll)
+                : AutoCutManager.getInstance().loadMdFile(mdPath, track::addAll);
+        subtitleFuture.whenComplete((count, error) -> {
+            if (error != null || count == null || count == 0) {
+                return;
+            }
+            SubtitleTimeIndex index = new SubtitleTimeIndex(track);
+            runOnUiThread(() -> {
+                if (player == null) {
+                    return;
+                }
+                subtitleTrack = track;
+                subtitleIndex = index;
+                updateSubtitleOverlay();
+            });
+        });
+    }
+
+    private void updateSubtitleOverlay() {
+        subtitleHandler.removeCallbacks(subtitleTicker);
+        if (player == null || subtitleIndex == null) {
+            return;
+        }
+
+        long position = player.getCurrentPosition();
+        int current = subtitleIndex.find(position);
+        if (current != shownSubtitle) {
+            shownSubtitle = current;
+            if (current >= 0) {
+                binding.tvSubtitleOverlay.setText(subtitleTrack.getContent(current));
+                binding.tvSubtitleOverlay.setVisibility(View.VISIBLE);
+            } else {
+                binding.tvSubtitleOverlay.setVisibility(View.GONE);
+            }
+        }
+
+        if (player.isPlaying()) {
+            long boundary = subtitleIndex.nextBoundary(position);
+            long delay = boundary < 0
+                    ? SUBTITLE_TICK_MAX_MS
+                    : (long) ((boundary - position) / currentPlaybackSpeed);
+            subtitleHandler.postDelayed(subtitleTicker,
+                    Math.max(SUBTITLE_TICK_MIN_MS, Math.min(SUBTITLE_TICK_MAX_MS, delay)));
+        }
+    }
+
+    // 把退出时的播放位置交回调用方，编辑页据此滚动到对应字幕
+    @Override
+    public void finish() {
+        if (player != null) {
+            Intent result = new Intent();
+            result.putExtra("position_ms", player.getCurrentPosition());
+            setResult(RESULT_OK, result);
+        }
+        super.finish();
     }
 
     private void toggleControls() {
@@ -193,6 +315,7 @@ public class VideoPlayerActivity extends AppCompatActivity {
                 .setItems(speeds, (dialog, which) -> {
                     currentPlaybackSpeed = speedValues[which];
                     player.setPlaybackParameters(new PlaybackParameters(currentPlaybackSpeed));
+                    updateSubtitleOverlay();
                     Toast.makeText(this, "播放速度: " + speeds[which], Toast.LENGTH_SHORT).show();
                 })
                 .show();
@@ -245,6 +368,13 @@ public class VideoPlayerActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        subtitleHandler.removeCallbacks(subtitleTicker);
+        if (subtitleFuture != null) {
+            subtitleFuture.cancel(true);
+        }
+        if (downloadFuture != null) {
+            downloadFuture.cancel(true);
+        }
         if (player != null) {
             player.release();
             player = null;
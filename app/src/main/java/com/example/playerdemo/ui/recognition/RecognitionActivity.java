@@ -8,31 +8,48 @@ import android.widget.Toast;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.example.playerdemo.data.model.MediaInfo;
 import com.example.playerdemo.data.repository.AutoCutManager;
+import com.example.playerdemo.data.repository.ConfigManager;
+import com.example.playerdemo.data.repository.MediaProbeService;
+import com.example.playerdemo.data.repository.RemoteJob;
 import com.example.playerdemo.data.repository.SshManager;
 import com.example.playerdemo.databinding.ActivityRecognitionBinding;
+import com.example.playerdemo.ui.common.LogSink;
 import com.example.playerdemo.ui.editor.MdEditorActivity;
+import com.example.playerdemo.ui.player.VideoPlayerActivity;
+
+import java.io.File;
 
 public class RecognitionActivity extends AppCompatActivity {
+    private static final int LOG_MAX_LINES = 500;
+
     private ActivityRecognitionBinding binding;
     private SshManager sshManager;
     private AutoCutManager autoCutManager;
+    private ConfigManager configManager;
     
     private String videoPath;
     private String videoName;
+    private boolean isRemote;
     private boolean isRecognizing = false;
+    private LogSink logSink;
+    private RemoteJob currentJob;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         binding = ActivityRecognitionBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
+        logSink = new LogSink(binding.tvLog, binding.scrollLog, new File(getFilesDir(), "logs"), "recognition", LOG_MAX_LINES);
 
         sshManager = SshManager.getInstance();
         autoCutManager = AutoCutManager.getInstance();
+        configManager = ConfigManager.getInstance(this);
 
         videoPath = getIntent().getStringExtra("video_path");
         videoName = getIntent().getStringExtra("video_name");
+        isRemote = getIntent().getBooleanExtra("is_remote", true);
 
         setupViews();
         startRecognition();
@@ -59,29 +76,37 @@ public class RecognitionActivity extends AppCompatActivity {
         isRecognizing = true;
         updateUIState(true);
         
-        binding.tvLog.append("开始识别字幕...\n");
-        binding.tvLog.append("视频路径: " + videoPath + "\n");
+        logSink.append("开始识别字幕...");
+        logSink.append("视频路径: " + videoPath);
+        MediaInfo mediaInfo = MediaProbeService.getInstance(this).getCached(videoPath);
+        if (mediaInfo != null && mediaInfo.getDurationMs() > 0) {
+            logSink.append("视频信息: " + mediaInfo.describe());
+        }
         
-        autoCutManager.recognizeSubtitles(videoPath, "", new AutoCutManager.RecognitionCallback() {
+        int streams = configManager.getWslConfig().getTranscribeStreams();
+        AutoCutManager.RecognitionCallback callback = new AutoCutManager.RecognitionCallback() {
             @Override
             public void onProgress(int progress, String message) {
+                // 已由 ProgressTracker 限频，每秒最多几次
                 runOnUiThread(() -> {
-                    if (progress > 0) {
-                        binding.progressBar.setProgress(progress);
-                    }
-                    if (message != null && !message.isEmpty()) {
-                        binding.tvLog.append(message + "\n");
-                        scrollToBottom();
-                    }
+                    binding.progressBar.setProgress(progress);
+                    binding.tvProgress.setText(message);
                 });
             }
 
+            @Override
+            public void onLog(String line) {
+                if (line == null || line.isEmpty()) return;
+                logSink.append(line);
+            }
+
             @Override
             public void onSuccess(String mdFilePath) {
                 runOnUiThread(() -> {
                     isRecognizing = false;
                     binding.progressBar.setProgress(100);
-                    binding.tvLog.append("\n识别完成！\n");
+                    logSink.append("识别完成！");
+                    logSink.append("完整日志: " + logSink.getLogFile());
                     updateUIState(false);
                     
                     navigateToEditor(mdFilePath);
@@ -92,12 +117,20 @@ public class RecognitionActivity extends AppCompatActivity {
             public void onFailure(String error) {
                 runOnUiThread(() -> {
                     isRecognizing = false;
-                    binding.tvLog.append("\n识别失败: " + error + "\n");
+                    logSink.append("识别失败: " + error);
+                    logSink.append("完整日志: " + logSink.getLogFile());
                     updateUIState(false);
                     showError(error);
                 });
             }
-        });
+        };
+        if (isRemote) {
+            currentJob = autoCutManager.recognizeSubtitlesChunked(videoPath, streams, callback);
+        } else {
+            // 本地视频只上传分离出的音轨
+            currentJob = autoCutManager.recognizeLocalVideo(new File(videoPath), getFilesDir(),
+                    configManager.getWslConfig().getVideoPath(), streams, callback);
+        }
     }
 
     private void updateUIState(boolean recognizing) {
@@ -113,21 +146,14 @@ public class RecognitionActivity extends AppCompatActivity {
         }
     }
 
-    private void scrollToBottom() {
-        int scrollAmount = binding.tvLog.getLayout().getLineTop(binding.tvLog.getLineCount()) - binding.tvLog.getHeight();
-        if (scrollAmount > 0) {
-            binding.tvLog.scrollTo(0, scrollAmount);
-        } else {
-            binding.tvLog.scrollTo(0, 0);
-        }
-    }
-
     private void showCancelDialog() {
         new AlertDialog.Builder(this)
                 .setTitle("取消识别")
                 .setMessage("确定要取消字幕识别吗？")
                 .setPositiveButton("确定", (dialog, which) -> {
-                    autoCutManager.cancelOperation();
+                    if (currentJob != null) {
+                        currentJob.cancel();
+                    }
                     isRecognizing = false;
                     finish();
                 })
@@ -145,15 +171,23 @@ public class RecognitionActivity extends AppCompatActivity {
 
     private void navigateToEditor(String mdFilePath) {
         new android.os.Handler(getMainLooper()).postDelayed(() -> {
-            Intent intent = new Intent(this, MdEditorActivity.class);
+            // 本地视频的字幕保存在手机上，编辑和剪辑都依赖主机上的文件，这里直接进入播放预览
+            Intent intent = new Intent(this, isRemote ? MdEditorActivity.class : VideoPlayerActivity.class);
             intent.putExtra("video_path", videoPath);
             intent.putExtra("video_name", videoName);
             intent.putExtra("md_path", mdFilePath);
+            intent.putExtra("is_remote", isRemote);
             startActivity(intent);
             finish();
         }, 1500);
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        logSink.close();
+    }
+
     @Override
     public void onBackPressed() {
         if (isRecognizing) {
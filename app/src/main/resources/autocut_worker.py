@@ -0,0 +1,199 @@
+# AutoCut 常驻转写进程：whisper 模型只加载一次，之后按行从 stdin 读取 JSON 请求，
+# 通过 stdout 逐行输出 JSON 事件。由 App 通过 SFTP 上传并在 ssh exec 通道中启动。
+#
+# 请求: {"id": "...", "inputs": ["/mnt/f/a.mp4", ...]}
+#       {"cancel": "..."}  取消一个请求：还没开始的直接跳过，正在转写的中断当前文件
+# 事件: {"event": "ready", "load_ms": 1234}
+#       {"id": "...", "event": "log", "line": "..."}
+#       {"id": "...", "event": "done", "input": "/mnt/f/a.mp4"}
+#       {"id": "...", "event": "error", "input": "/mnt/f/a.mp4", "message": "..."}
+#       {"id": "...", "event": "finished", "ok": true}
+#       {"id": "...", "event": "finished", "ok": false, "cancelled": true}
+import argparse
+import json
+import logging
+import os
+import queue
+import shutil
+import sys
+import threading
+import time
+import _thread
+
+
+def reexec_with_autocut_python():
+    # autocut 常装在独立的 venv/conda 环境里，改用它入口脚本 shebang 指定的解释器
+    exe = shutil.which("autocut")
+    if not exe:
+        return
+    with open(exe) as f:
+        first = f.readline().strip()
+    if first.startswith("#!"):
+        interpreter = first[2:].strip().split()[0]
+        if os.path.realpath(interpreter) != os.path.realpath(sys.executable):
+            os.execv(interpreter, [interpreter, "-u", os.path.abspath(__file__)] + sys.argv[1:])
+
+
+try:
+    import autocut  # noqa: F401
+except ImportError:
+    reexec_with_autocut_python()
+    raise
+
+from autocut import main as autocut_main
+from autocut.transcribe import Transcribe
+
+protocol_out = sys.stdout
+current_id = None
+# stdin 由单独的线程读取，转写进行中也能收到 cancel
+requests = queue.Queue()
+state_lock = threading.Lock()
+cancelled_ids = set()
+# 正在执行 transcriber.run() 的请求，只有这时才用 KeyboardInterrupt 打断主线程
+running_id = None
+
+
+def send(event, **fields):
+    fields["event"] = event
+    if current_id is not None:
+        fields.setdefault("id", current_id)
+    protocol_out.write(json.dumps(fields, ensure_ascii=False) + "\n")
+    protocol_out.flush()
+
+
+class EventHandler(logging.Handler):
+    def emit(self, record):
+        send("log", line=record.getMessage())
+
+
+class EventStream:
+    # tqdm 进度条写在 stderr 且用 \r 刷新，按 \r / \n 切成行后作为 log 事件转发
+    def __init__(self):
+        self.buffer = ""
+
+    def write(self, text):
+        self.buffer += text
+        while True:
+            cut = min((i for i in (self.buffer.find("\r"), self.buffer.find("\n")) if i >= 0), default=-1)
+            if cut < 0:
+                break
+            line = self.buffer[:cut].strip()
+            self.buffer = self.buffer[cut + 1:]
+            if line:
+                send("log", line=line)
+        return len(text)
+
+    def flush(self):
+        pass
+
+    def isatty(self):
+        return False
+
+
+def build_args(cli_args):
+    # 借用 autocut 自己的命令行解析得到完整的默认参数，解析完立即退出，不执行任何动作
+    captured = {}
+    original = argparse.ArgumentParser.parse_args
+
+    def capture(self, args=None, namespace=None):
+        captured["args"] = original(self, args, namespace)
+        raise SystemExit(0)
+
+    argparse.ArgumentParser.parse_args = capture
+    saved_argv = sys.argv
+    sys.argv = ["autocut", "-t", "placeholder"] + cli_args
+    try:
+        autocut_main.main()
+    except SystemExit:
+        pass
+    finally:
+        argparse.ArgumentParser.parse_args = original
+        sys.argv = saved_argv
+    return captured["args"]
+
+
+def read_requests():
+    for raw in sys.stdin:
+        raw = raw.strip()
+        if not raw:
+            continue
+        try:
+            message = json.loads(raw)
+        except ValueError:
+            continue
+        cancel = message.get("cancel")
+        if cancel is None:
+            requests.put(message)
+            continue
+        with state_lock:
+            cancelled_ids.add(cancel)
+            if running_id == cancel:
+                _thread.interrupt_main()
+    requests.put(None)
+
+
+def run_request(transcriber, args, request):
+    global current_id, running_id
+    request_id = request.get("id")
+    current_id = request_id
+    failed = False
+    try:
+        for path in request.get("inputs", []):
+            with state_lock:
+                if request_id in cancelled_ids:
+                    raise KeyboardInterrupt
+                running_id = request_id
+            args.inputs = [path]
+            try:
+                transcriber.run()
+                send("done", input=path)
+            except KeyboardInterrupt:
+                raise
+            except Exception as e:
+                failed = True
+                send("error", input=path, message=str(e))
+            finally:
+                with state_lock:
+                    running_id = None
+        send("finished", ok=not failed)
+    except KeyboardInterrupt:
+        send("finished", ok=False, cancelled=True)
+    finally:
+        with state_lock:
+            cancelled_ids.discard(request_id)
+        current_id = None
+
+
+def main():
+    # stdout 只留给协议，库里的 print 和 tqdm 输出都转成 log 事件
+    sys.stdout = sys.stderr = EventStream()
+    root = logging.getLogger()
+    root.setLevel(logging.INFO)
+    root.addHandler(EventHandler())
+
+    args = build_args(sys.argv[1:])
+    started = time.time()
+    transcriber = Transcribe(args)
+    threading.Thread(target=read_requests, daemon=True).start()
+    send("ready", load_ms=int((time.time() - started) * 1000))
+
+    while True:
+        try:
+            request = requests.get()
+            if request is None:
+                break
+            with state_lock:
+                skipped = request.get("id") in cancelled_ids
+                if skipped:
+                    cancelled_ids.discard(request.get("id"))
+            if skipped:
+                send("finished", id=request.get("id"), ok=False, cancelled=True)
+                continue
+            run_request(transcriber, args, request)
+        except KeyboardInterrupt:
+            # 取消晚到一步，请求已经结束，继续处理下一个
+            continue
+
+
+if __name__ == "__main__":
+    main()